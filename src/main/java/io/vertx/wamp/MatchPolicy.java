@@ -0,0 +1,46 @@
+package io.vertx.wamp;
+
+import java.util.Map;
+
+/**
+ * The ways a subscription can match the topics of publications, as requested via the {@code match}
+ * option of a SUBSCRIBE message.
+ */
+public enum MatchPolicy {
+  // the topic has to be equal to the subscribed URI
+  EXACT("exact"),
+  // the subscribed URI has to be a prefix of the topic, compared component by component
+  PREFIX("prefix"),
+  // empty components of the subscribed URI match any component at the same position
+  WILDCARD("wildcard");
+
+  private final String option;
+
+  MatchPolicy(String option) {
+    this.option = option;
+  }
+
+  /**
+   * Reads the match policy from the options of a SUBSCRIBE message
+   *
+   * @param options the subscription options, may be null
+   * @return the requested match policy, EXACT if there is none
+   * @throws IllegalArgumentException if the requested policy is unknown
+   */
+  public static MatchPolicy fromOptions(Map<String, Object> options) {
+    final Object match = options == null ? null : options.get("match");
+    if (match == null) {
+      return EXACT;
+    }
+    for (MatchPolicy policy : values()) {
+      if (policy.option.equals(match)) {
+        return policy;
+      }
+    }
+    throw new IllegalArgumentException("Unsupported match policy " + match);
+  }
+
+  public String getOption() {
+    return option;
+  }
+}
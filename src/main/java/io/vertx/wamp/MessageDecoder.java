@@ -1,5 +1,6 @@
 package io.vertx.wamp;
 
+import io.vertx.wamp.messages.RawPayload;
 import java.io.IOException;
 import java.util.List;
 import java.util.Map;
@@ -26,4 +27,14 @@ public interface MessageDecoder<I, O> {
   Long getLong(O data, int idx);
 
   List<Object> getList(O data, int idx);
+
+  /**
+   * Decoders may keep the trailing arguments and keyword arguments of messages the router merely
+   * passes on in their serialized form.
+   *
+   * @return the undecoded arguments starting at the index, null if they have been decoded
+   */
+  default RawPayload getRawPayload(O data, int idx) {
+    return null;
+  }
 }
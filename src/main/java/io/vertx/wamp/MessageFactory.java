@@ -9,6 +9,7 @@ import io.vertx.wamp.messages.HelloMessage;
 import io.vertx.wamp.messages.InvocationMessage;
 import io.vertx.wamp.messages.PublishMessage;
 import io.vertx.wamp.messages.PublishedMessage;
+import io.vertx.wamp.messages.RawPayload;
 import io.vertx.wamp.messages.RegisterMessage;
 import io.vertx.wamp.messages.RegisteredMessage;
 import io.vertx.wamp.messages.ResultMessage;
@@ -109,15 +110,31 @@ public class MessageFactory {
       long registrationId,
       List<Object> arguments,
       Map<String, Object> argumentsKw) {
+    return createInvocationMessage(id, registrationId, arguments, argumentsKw, null);
+  }
+
+  public static InvocationMessage createInvocationMessage(long id,
+      long registrationId,
+      List<Object> arguments,
+      Map<String, Object> argumentsKw,
+      RawPayload rawPayload) {
     return new InvocationMessage(id, registrationId, Collections.emptyMap(), arguments,
-        argumentsKw);
+        argumentsKw, rawPayload);
   }
 
   public static WAMPMessage createResultMessage(long requestid,
       Map<String, Object> details,
       List<Object> arguments,
       Map<String, Object> argumentsKw) {
-    return new ResultMessage(requestid, details, arguments, argumentsKw);
+    return createResultMessage(requestid, details, arguments, argumentsKw, null);
+  }
+
+  public static WAMPMessage createResultMessage(long requestid,
+      Map<String, Object> details,
+      List<Object> arguments,
+      Map<String, Object> argumentsKw,
+      RawPayload rawPayload) {
+    return new ResultMessage(requestid, details, arguments, argumentsKw, rawPayload);
   }
 
   public static EventMessage createEvent(long subscriptionId,
@@ -131,4 +148,9 @@ public class MessageFactory {
         arguments,
         argumentsKw);
   }
+
+  public static EventMessage createEvent(long subscriptionId,
+      EventMessage.Publication publication) {
+    return new EventMessage(subscriptionId, publication);
+  }
 }
@@ -19,6 +19,17 @@ public interface MessageTransport extends Closeable {
 
   void setErrorHandler(Consumer<Uri> consumer);
 
+  /**
+   * Stops handing received messages to the receive handler until {@link #resume()} is called,
+   * letting the peer's writes back up rather than buffering them. Transports which can't hold
+   * back their peer ignore it.
+   */
+  default void pause() {
+  }
+
+  default void resume() {
+  }
+
   default void close() {
     close(null);
   }
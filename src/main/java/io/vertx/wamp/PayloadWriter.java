@@ -0,0 +1,15 @@
+package io.vertx.wamp;
+
+import java.io.IOException;
+
+/**
+ * Receives the payload elements of a message one by one, so that an encoder can write them out
+ * without the payload list being built first.
+ */
+public interface PayloadWriter {
+
+  void writeLong(long value) throws IOException;
+
+  // any payload element: strings, URIs, numbers, maps, lists, raw payloads or null
+  void writeValue(Object value) throws IOException;
+}
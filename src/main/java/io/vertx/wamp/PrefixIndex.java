@@ -0,0 +1,90 @@
+package io.vertx.wamp;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Trie of prefix subscriptions keyed by the dot-separated components of their URI. Looking up the
+ * subscriptions matching a topic only walks as many nodes as the topic has components.
+ * <p>
+ * Not thread-safe, the realm guards access to it.
+ */
+final class PrefixIndex {
+
+  private final Node root = new Node();
+
+  void add(Realm.Subscription subscription) {
+    Node node = root;
+    final String[] components = subscription.topic.getComponents();
+    for (int i = 0; i < prefixLength(components); i++) {
+      node = node.children.computeIfAbsent(components[i], c -> new Node());
+    }
+    node.subscriptions.add(subscription);
+  }
+
+  void remove(Realm.Subscription subscription) {
+    final String[] components = subscription.topic.getComponents();
+    remove(root, Arrays.copyOf(components, prefixLength(components)), 0, subscription);
+  }
+
+  // a trailing dot leaves an empty last component, which isn't indexed: the subscription sits at
+  // the node of its prefix, but only matches topics below it
+  private static int prefixLength(String[] components) {
+    return components[components.length - 1].isEmpty() ?
+        components.length - 1 : components.length;
+  }
+
+  private static boolean isBelowOnly(Realm.Subscription subscription) {
+    final String[] components = subscription.topic.getComponents();
+    return components[components.length - 1].isEmpty();
+  }
+
+  // returns whether the node has become empty and can be pruned by its parent
+  private boolean remove(Node node, String[] components, int depth,
+      Realm.Subscription subscription) {
+    if (depth == components.length) {
+      node.subscriptions.remove(subscription);
+    } else {
+      final Node child = node.children.get(components[depth]);
+      if (child != null && remove(child, components, depth + 1, subscription)) {
+        node.children.remove(components[depth]);
+      }
+    }
+    return node.isEmpty();
+  }
+
+  // passes every subscription whose URI is a prefix of the topic (or equal to it) to the consumer
+  void collect(Uri topic, Consumer<Realm.Subscription> consumer) {
+    Node node = root;
+    final String[] components = topic.getComponents();
+    for (int i = 0; i < components.length; i++) {
+      node = node.children.get(components[i]);
+      if (node == null) {
+        return;
+      }
+      if (i < components.length - 1) {
+        node.subscriptions.forEach(consumer);
+      } else {
+        for (Realm.Subscription subscription : node.subscriptions) {
+          if (!isBelowOnly(subscription)) {
+            consumer.accept(subscription);
+          }
+        }
+      }
+    }
+  }
+
+  private static final class Node {
+
+    final Map<String, Node> children = new HashMap<>();
+    final Set<Realm.Subscription> subscriptions = new LinkedHashSet<>();
+
+    boolean isEmpty() {
+      return children.isEmpty() && subscriptions.isEmpty();
+    }
+  }
+}
@@ -0,0 +1,158 @@
+package io.vertx.wamp;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Decides which subscribers receive a publication, based on the {@code exclude_me}, {@code exclude},
+ * {@code eligible}, {@code exclude_authid}, {@code eligible_authid}, {@code exclude_authrole} and
+ * {@code eligible_authrole} options of a PUBLISH message.
+ * <p>
+ * The lists are turned into hash sets once per publication so that checking a subscriber does not
+ * depend on their size.
+ */
+final class PublicationFilter {
+
+  private static final String EXCLUDE_ME = "exclude_me";
+  private static final String EXCLUDE = "exclude";
+  private static final String ELIGIBLE = "eligible";
+  private static final String EXCLUDE_AUTHID = "exclude_authid";
+  private static final String ELIGIBLE_AUTHID = "eligible_authid";
+  private static final String EXCLUDE_AUTHROLE = "exclude_authrole";
+  private static final String ELIGIBLE_AUTHROLE = "eligible_authrole";
+  private static final Set<String> OPTIONS = Set.of(EXCLUDE_ME, EXCLUDE, ELIGIBLE,
+      EXCLUDE_AUTHID, ELIGIBLE_AUTHID, EXCLUDE_AUTHROLE, ELIGIBLE_AUTHROLE);
+
+  static final PublicationFilter NONE = new PublicationFilter(null, null, null, null, null, null,
+      null);
+
+  // a null set means the corresponding option is absent
+  private final WampSession excludedPublisher;
+  private final Set<Long> exclude;
+  private final Set<Long> eligible;
+  private final Set<String> excludeAuthId;
+  private final Set<String> eligibleAuthId;
+  private final Set<String> excludeAuthRole;
+  private final Set<String> eligibleAuthRole;
+
+  private PublicationFilter(WampSession excludedPublisher,
+      Set<Long> exclude,
+      Set<Long> eligible,
+      Set<String> excludeAuthId,
+      Set<String> eligibleAuthId,
+      Set<String> excludeAuthRole,
+      Set<String> eligibleAuthRole) {
+    this.excludedPublisher = excludedPublisher;
+    this.exclude = exclude;
+    this.eligible = eligible;
+    this.excludeAuthId = excludeAuthId;
+    this.eligibleAuthId = eligibleAuthId;
+    this.excludeAuthRole = excludeAuthRole;
+    this.eligibleAuthRole = eligibleAuthRole;
+  }
+
+  /**
+   * Reads the filter from the options of a PUBLISH message
+   *
+   * @param publisher the publishing session, null if the publication originates from the router
+   * @param options   the publication options, may be null
+   * @return the filter to apply to the subscribers of the publication
+   * @throws IllegalArgumentException if one of the options is malformed
+   */
+  static PublicationFilter fromOptions(WampSession publisher, Map<String, Object> options) {
+    if (options == null || options.isEmpty()) {
+      return publisher == null ? NONE : new PublicationFilter(publisher, null, null, null, null,
+          null, null);
+    }
+    final Object excludeMe = options.getOrDefault(EXCLUDE_ME, Boolean.TRUE);
+    if (!(excludeMe instanceof Boolean)) {
+      throw new IllegalArgumentException("Option exclude_me must be a boolean");
+    }
+    return new PublicationFilter(
+        (Boolean) excludeMe ? publisher : null,
+        toIdSet(options.get(EXCLUDE), EXCLUDE),
+        toIdSet(options.get(ELIGIBLE), ELIGIBLE),
+        toStringSet(options.get(EXCLUDE_AUTHID), EXCLUDE_AUTHID),
+        toStringSet(options.get(ELIGIBLE_AUTHID), ELIGIBLE_AUTHID),
+        toStringSet(options.get(EXCLUDE_AUTHROLE), EXCLUDE_AUTHROLE),
+        toStringSet(options.get(ELIGIBLE_AUTHROLE), ELIGIBLE_AUTHROLE));
+  }
+
+  /**
+   * @return the options without the ones steering the filter, which are none of the subscribers'
+   * business
+   */
+  static Map<String, Object> withoutFilterOptions(Map<String, Object> options) {
+    if (options == null || OPTIONS.stream().noneMatch(options::containsKey)) {
+      return options;
+    }
+    final Map<String, Object> result = new HashMap<>(options);
+    result.keySet().removeAll(OPTIONS);
+    return result;
+  }
+
+  boolean isEligible(WampSession subscriber) {
+    if (subscriber == excludedPublisher) {
+      return false;
+    }
+    if (exclude != null || eligible != null) {
+      final long sessionId = subscriber.getSessionId();
+      if ((exclude != null && exclude.contains(sessionId))
+          || (eligible != null && !eligible.contains(sessionId))) {
+        return false;
+      }
+    }
+    if (excludeAuthId == null && eligibleAuthId == null
+        && excludeAuthRole == null && eligibleAuthRole == null) {
+      return true;
+    }
+    final SecurityPolicy.ClientInfo clientInfo = subscriber.getClientInfo();
+    final String authId = clientInfo == null ? null : clientInfo.getAuthId();
+    final String authRole = clientInfo == null ? null : clientInfo.getAuthRole();
+    return matches(authId, excludeAuthId, eligibleAuthId)
+        && matches(authRole, excludeAuthRole, eligibleAuthRole);
+  }
+
+  private static boolean matches(String value, Set<String> excluded, Set<String> eligible) {
+    return (excluded == null || !excluded.contains(value))
+        && (eligible == null || eligible.contains(value));
+  }
+
+  private static Set<Long> toIdSet(Object list, String option) {
+    if (list == null) {
+      return null;
+    }
+    final Set<Long> result = new HashSet<>();
+    for (Object id : toIterable(list, option)) {
+      if (!(id instanceof Number)) {
+        throw new IllegalArgumentException("Option " + option + " must only contain session IDs");
+      }
+      result.add(((Number) id).longValue());
+    }
+    return result;
+  }
+
+  private static Set<String> toStringSet(Object list, String option) {
+    if (list == null) {
+      return null;
+    }
+    final Set<String> result = new HashSet<>();
+    for (Object value : toIterable(list, option)) {
+      if (!(value instanceof String)) {
+        throw new IllegalArgumentException("Option " + option + " must only contain strings");
+      }
+      result.add((String) value);
+    }
+    return result;
+  }
+
+  // JSON arrays may still be wrapped depending on how the message was decoded
+  private static Iterable<?> toIterable(Object list, String option) {
+    if (!(list instanceof Iterable)) {
+      throw new IllegalArgumentException("Option " + option + " must be a list");
+    }
+    return (Iterable<?>) list;
+  }
+}
@@ -1,30 +1,59 @@
 package io.vertx.wamp;
 
-import io.vertx.core.CompositeFuture;
+import io.vertx.core.Context;
 import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.wamp.messages.CallMessage;
 import io.vertx.wamp.messages.EventMessage;
 import io.vertx.wamp.messages.PublishMessage;
+import io.vertx.wamp.messages.RawPayload;
+import io.vertx.wamp.messages.YieldMessage;
 import io.vertx.wamp.util.NonDuplicateRandomIdGenerator;
 import io.vertx.wamp.util.RandomIdGenerator;
 import java.util.AbstractMap;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
-import java.util.Iterator;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Objects;
-import java.util.Optional;
-import java.util.function.Predicate;
-import java.util.stream.Collectors;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 // the realm manages all subscriptions and publications in it
 public class Realm {
 
+  private static final Subscription[] NO_SUBSCRIPTIONS = new Subscription[0];
+
   private final Uri uri;
 
-  private final List<Subscription> subscriptions = new ArrayList<>();
-  private final List<Subscription> registrations = new ArrayList<>();
+  // subscriptions are indexed by their topic so that publishing only has to look at
+  // the matching subscribers, plus by their ID for unsubscribing.
+  // each topic maps to an array that is replaced rather than modified, so publishers can read it
+  // without locking while subscribing and unsubscribing only contend on the topic they change
+  private final ConcurrentMap<Uri, Subscription[]> subscriptions = new ConcurrentHashMap<>();
+  private final ConcurrentMap<Long, Subscription> subscriptionsById = new ConcurrentHashMap<>();
+  // the pattern indexes are mutable trees, they get a lock of their own which is skipped
+  // entirely as long as there are no pattern-based subscriptions
+  private final ReadWriteLock patternLock = new ReentrantReadWriteLock();
+  private final PrefixIndex prefixSubscriptions = new PrefixIndex();
+  private final WildcardIndex wildcardSubscriptions = new WildcardIndex();
+  private volatile int patternSubscriptionCount;
+  // procedures can only be registered once, so CALLs can be routed by a single lookup
+  private final ConcurrentMap<Uri, Subscription> registrations = new ConcurrentHashMap<>();
+  private final ConcurrentMap<Long, Subscription> registrationsById = new ConcurrentHashMap<>();
+  // what each session holds, so that tearing it down doesn't have to scan the whole realm
+  private final ConcurrentMap<WampSession, Set<Subscription>> sessionSubscriptions = new ConcurrentHashMap<>();
+  private final ConcurrentMap<WampSession, Set<Subscription>> sessionRegistrations = new ConcurrentHashMap<>();
   private final NonDuplicateRandomIdGenerator subscriptionIdGenerator = new NonDuplicateRandomIdGenerator();
   private final RandomIdGenerator publicationIdGenerator = new RandomIdGenerator();
 
@@ -33,57 +62,147 @@ public class Realm {
   }
 
   public Future<Long> publishMessage(PublishMessage msg) {
-    return publishMessage(msg.getTopic(), msg.getOptions(), msg.getArguments(),
-        msg.getArgumentsKw());
+    return publishMessage(null, msg);
+  }
+
+  // the publisher is needed to honor exclude_me, which is the default
+  public Future<Long> publishMessage(WampSession publisher, PublishMessage msg) {
+    return publishMessage(publisher, msg, null);
+  }
+
+  // the handler is called once the events have been handed to the transports of all subscribers,
+  // on whichever event loop did so last
+  Future<Long> publishMessage(WampSession publisher, PublishMessage msg,
+      Handler<Void> deliveredHandler) {
+    // undecoded arguments are handed on as received, subscribers using another serializer decode
+    // them on demand
+    final RawPayload rawPayload = msg.getRawPayload();
+    return rawPayload != null ?
+        publishMessage(publisher, msg.getTopic(), msg.getOptions(), null, null, rawPayload,
+            deliveredHandler) :
+        publishMessage(publisher, msg.getTopic(), msg.getOptions(), msg.getArguments(),
+            msg.getArgumentsKw(), null, deliveredHandler);
   }
 
   public Future<Long> publishMessage(Uri topic,
       Map<String, Object> options,
       List<Object> arguments,
       Map<String, Object> argumentsKw) {
+    return publishMessage(null, topic, options, arguments, argumentsKw, null, null);
+  }
+
+  private Future<Long> publishMessage(WampSession publisher,
+      Uri topic,
+      Map<String, Object> publishOptions,
+      List<Object> arguments,
+      Map<String, Object> argumentsKw,
+      RawPayload rawPayload,
+      Handler<Void> deliveredHandler) {
+    final PublicationFilter filter;
+    try {
+      filter = PublicationFilter.fromOptions(publisher, publishOptions);
+    } catch (IllegalArgumentException err) {
+      if (deliveredHandler != null) {
+        deliveredHandler.handle(null);
+      }
+      return Future.failedFuture(err);
+    }
+    final Map<String, Object> options = PublicationFilter.withoutFilterOptions(publishOptions);
     final long publicationId = publicationIdGenerator.next();
-    List<Future> publishFutures = getSubscriptions(topic).parallelStream()
-        .map(subscription -> deliverEventMessage(subscription,
-            MessageFactory.createEvent(
-                subscription.id,
-                publicationId,
-                options,
-                arguments,
-                argumentsKw))).collect(Collectors.toList());
-    return CompositeFuture.all(publishFutures).map(publicationId);
+    final Collection<Subscription> matching = getSubscriptions(topic);
+    // the publication is shared by all events so that it's only serialized once per encoder.
+    // subscribers matching by pattern can't know the actual topic otherwise, so they get their own
+    final EventMessage.Publication publication = new EventMessage.Publication(publicationId,
+        options, arguments, argumentsKw, rawPayload);
+    final EventMessage.Publication patternPublication =
+        matching.stream().anyMatch(s -> s.match != MatchPolicy.EXACT) ?
+            new EventMessage.Publication(publicationId, withTopic(options, topic), arguments,
+                argumentsKw, rawPayload) : publication;
+    // deliver on each subscriber's own event loop, handing it all of its events at once
+    final Map<Context, List<Subscription>> batches = new HashMap<>();
+    for (Subscription subscription : matching) {
+      if (filter != PublicationFilter.NONE && !filter.isEligible(subscription.consumer)) {
+        continue;
+      }
+      batches.computeIfAbsent(subscription.consumer.getContext(), c -> new ArrayList<>())
+          .add(subscription);
+    }
+    // only counted if someone waits for the fan-out to complete
+    final AtomicInteger pendingBatches = deliveredHandler == null ? null :
+        new AtomicInteger(batches.size() + 1);
+    batches.forEach((context, batch) -> {
+      if (context == null || context == Vertx.currentContext()) {
+        deliverBatch(batch, publication, patternPublication);
+        batchDelivered(pendingBatches, deliveredHandler);
+      } else {
+        context.runOnContext(v -> {
+          deliverBatch(batch, publication, patternPublication);
+          batchDelivered(pendingBatches, deliveredHandler);
+        });
+      }
+    });
+    batchDelivered(pendingBatches, deliveredHandler);
+    // events are fire-and-forget, so the publication is done once all of them are scheduled
+    return Future.succeededFuture(publicationId);
+  }
+
+  private static void batchDelivered(AtomicInteger pendingBatches,
+      Handler<Void> deliveredHandler) {
+    if (pendingBatches != null && pendingBatches.decrementAndGet() == 0) {
+      deliveredHandler.handle(null);
+    }
+  }
+
+  private void deliverBatch(List<Subscription> batch,
+      EventMessage.Publication publication,
+      EventMessage.Publication patternPublication) {
+    for (Subscription subscription : batch) {
+      deliverEventMessage(subscription,
+          MessageFactory.createEvent(
+              subscription.id,
+              subscription.match == MatchPolicy.EXACT ? publication : patternPublication));
+    }
+  }
+
+  private static Map<String, Object> withTopic(Map<String, Object> details, Uri topic) {
+    final Map<String, Object> result = details == null ? new HashMap<>() : new HashMap<>(details);
+    result.put("topic", topic.toString());
+    return result;
   }
 
   public Future<AbstractMap.SimpleImmutableEntry<List<Object>, Map<String, Object>>> callProcedure(
       Uri procedure,
       List<Object> arguments,
       Map<String, Object> argumentsKw) {
-    return Future.future(promise -> {
-      final Optional<Subscription> registrationResult = registrations.stream()
-          .filter((r) -> r.topic.equals(procedure)).findFirst();
-      if (registrationResult.isEmpty()) {
-        promise.fail(new NoSuchElementException());
-        return;
-      }
-      final long invocationId = publicationIdGenerator.next();
-      final Subscription registration = registrationResult.get();
-      registration.consumer.invokeRegistration(MessageFactory.createInvocationMessage(invocationId,
-          registration.id, arguments, argumentsKw))
-          .onComplete((result) -> {
-            if (result.failed()) {
-              promise.fail(result.cause());
-            } else {
-              promise.complete(result.result());
-            }
-          });
-    });
+    return callProcedure(procedure, arguments, argumentsKw, null)
+        .map(result -> new AbstractMap.SimpleImmutableEntry<>(result.getArguments(),
+            result.getArgumentsKw()));
+  }
+
+  // the arguments are handed to the callee as received, and so is its YIELD to the caller
+  Future<YieldMessage> callProcedure(CallMessage msg) {
+    final RawPayload rawPayload = msg.getRawPayload();
+    return rawPayload != null ?
+        callProcedure(msg.getProcedure(), null, null, rawPayload) :
+        callProcedure(msg.getProcedure(), msg.getArguments(), msg.getArgumentsKw(), null);
+  }
 
+  private Future<YieldMessage> callProcedure(Uri procedure,
+      List<Object> arguments,
+      Map<String, Object> argumentsKw,
+      RawPayload rawPayload) {
+    final Subscription registration = getRegistration(procedure);
+    if (registration == null) {
+      return Future.failedFuture(new NoSuchElementException());
+    }
+    final long invocationId = publicationIdGenerator.next();
+    return registration.consumer.invoke(MessageFactory.createInvocationMessage(invocationId,
+        registration.id, arguments, argumentsKw, rawPayload));
   }
 
-  private Future<Void> deliverEventMessage(Subscription subscription, EventMessage message) {
+  private void deliverEventMessage(Subscription subscription, EventMessage message) {
     if (isPublishAuthorized(subscription, message)) {
-      return subscription.consumer.sendMessage(message);
-    } else {
-      return Future.failedFuture("Unauthorized to publish this message");
+      subscription.consumer.sendMessage(message, null);
     }
   }
 
@@ -97,69 +216,235 @@ public class Realm {
     return uri;
   }
 
-  private synchronized Collection<Subscription> getSubscriptions(Uri pattern) {
-    // a stream will raise an exception if the underlying data is changed while
-    // it's being used so make a temporary copy
-    return subscriptions.parallelStream()
-        // pattern matching is part of the advanced profile only
-        .filter(subscription -> subscription.topic.equals(pattern))
-        .collect(Collectors.toUnmodifiableList());
+  private Subscription getRegistration(Uri procedure) {
+    return registrations.get(procedure);
+  }
+
+  private Collection<Subscription> getSubscriptions(Uri topic) {
+    final Subscription[] topicSubscriptions = subscriptions.getOrDefault(topic, NO_SUBSCRIPTIONS);
+    if (patternSubscriptionCount == 0) {
+      // the array is never modified once published, so it can be handed out as is
+      return Arrays.asList(topicSubscriptions);
+    }
+    final List<Subscription> result = new ArrayList<>(Arrays.asList(topicSubscriptions));
+    patternLock.readLock().lock();
+    try {
+      prefixSubscriptions.collect(topic, result::add);
+      wildcardSubscriptions.collect(topic, result::add);
+    } finally {
+      patternLock.readLock().unlock();
+    }
+    return result;
+  }
+
+  public long addSubscription(WampSession session, Uri topic) {
+    return addSubscription(session, topic, MatchPolicy.EXACT);
   }
 
-  public synchronized long addSubscription(WampSession session, Uri topic) {
+  public long addSubscription(WampSession session, Uri topic, MatchPolicy match) {
     final long subscriptionId = subscriptionIdGenerator.next();
-    this.subscriptions.add(new Subscription(session,
-        subscriptionId,
-        topic));
+    final Subscription subscription = new Subscription(session, subscriptionId, topic, match);
+    if (match == MatchPolicy.EXACT) {
+      this.subscriptions.compute(topic, (t, current) -> with(current, subscription));
+    } else {
+      patternLock.writeLock().lock();
+      try {
+        if (match == MatchPolicy.PREFIX) {
+          this.prefixSubscriptions.add(subscription);
+        } else {
+          this.wildcardSubscriptions.add(subscription);
+        }
+        patternSubscriptionCount++;
+      } finally {
+        patternLock.writeLock().unlock();
+      }
+    }
+    this.subscriptionsById.put(subscriptionId, subscription);
+    addSessionEntry(sessionSubscriptions, subscription);
     return subscriptionId;
   }
 
-  public synchronized long addRegistration(WampSession session, Uri topic) {
-    if (this.registrations.parallelStream()
-        .anyMatch((subscription) -> subscription.topic.equals(topic))) {
+  public long addRegistration(WampSession session, Uri topic) {
+    if (this.registrations.containsKey(topic)) {
       return -1;
     }
     // routers are free to choose a generation strategy - let's re-use the same sequence as for subscriptions
     final long registrationId = subscriptionIdGenerator.next();
     // but still store them separately
-    this.registrations.add(new Subscription(session,
-        registrationId,
-        topic));
+    final Subscription registration = new Subscription(session, registrationId, topic);
+    if (this.registrations.putIfAbsent(topic, registration) != null) {
+      // someone else was quicker
+      subscriptionIdGenerator.release(registrationId);
+      return -1;
+    }
+    this.registrationsById.put(registrationId, registration);
+    addSessionEntry(sessionRegistrations, registration);
     return registrationId;
   }
 
-  public synchronized void removeSession(WampSession session) {
-    Predicate<Subscription> checkId = (Subscription s) -> {
-      if (s.consumer == session) {
-        subscriptionIdGenerator.release(s.id);
-        return true;
+  public void removeSession(WampSession session) {
+    removeSessions(Collections.singletonList(session));
+  }
+
+  // tears down many sessions at once, e.g. on shutdown: each topic's subscriber array is rebuilt
+  // once and the pattern indexes are locked once, however many subscriptions are removed
+  public void removeSessions(Collection<WampSession> sessions) {
+    final Map<Uri, Set<Subscription>> exactByTopic = new HashMap<>();
+    final List<Subscription> patterns = new ArrayList<>();
+    for (WampSession session : sessions) {
+      collectSessionSubscriptions(session, exactByTopic, patterns);
+      removeSessionRegistrations(session);
+    }
+    exactByTopic.forEach((topic, removed) ->
+        subscriptions.computeIfPresent(topic, (t, current) -> without(current, removed)));
+    if (!patterns.isEmpty()) {
+      patternLock.writeLock().lock();
+      try {
+        for (Subscription subscription : patterns) {
+          if (subscription.match == MatchPolicy.PREFIX) {
+            prefixSubscriptions.remove(subscription);
+          } else {
+            wildcardSubscriptions.remove(subscription);
+          }
+        }
+        patternSubscriptionCount -= patterns.size();
+      } finally {
+        patternLock.writeLock().unlock();
+      }
+    }
+    // only once they're gone, as subscriptions are told apart by their ID
+    exactByTopic.values().forEach(removed ->
+        removed.forEach(subscription -> subscriptionIdGenerator.release(subscription.id)));
+    patterns.forEach(subscription -> subscriptionIdGenerator.release(subscription.id));
+  }
+
+  private void removeSessionRegistrations(WampSession session) {
+    final Set<Subscription> sessionEntries = sessionRegistrations.remove(session);
+    if (sessionEntries == null) {
+      return;
+    }
+    for (Subscription registration : sessionEntries) {
+      if (registrationsById.remove(registration.id, registration)) {
+        registrations.remove(registration.topic, registration);
+        subscriptionIdGenerator.release(registration.id);
+      }
+    }
+  }
+
+  private void collectSessionSubscriptions(WampSession session,
+      Map<Uri, Set<Subscription>> exactByTopic, List<Subscription> patterns) {
+    final Set<Subscription> sessionEntries = sessionSubscriptions.remove(session);
+    if (sessionEntries == null) {
+      return;
+    }
+    for (Subscription subscription : sessionEntries) {
+      // it might have been unsubscribed concurrently
+      if (subscriptionsById.remove(subscription.id, subscription)) {
+        if (subscription.match == MatchPolicy.EXACT) {
+          exactByTopic.computeIfAbsent(subscription.topic, t -> new HashSet<>())
+              .add(subscription);
+        } else {
+          patterns.add(subscription);
+        }
+      }
+    }
+  }
+
+  private static void addSessionEntry(ConcurrentMap<WampSession, Set<Subscription>> index,
+      Subscription entry) {
+    index.compute(entry.consumer, (s, entries) -> {
+      final Set<Subscription> result = entries == null ? new HashSet<>() : entries;
+      result.add(entry);
+      return result;
+    });
+  }
+
+  private static void removeSessionEntry(ConcurrentMap<WampSession, Set<Subscription>> index,
+      Subscription entry) {
+    index.computeIfPresent(entry.consumer, (s, entries) -> {
+      entries.remove(entry);
+      return entries.isEmpty() ? null : entries;
+    });
+  }
+
+  private void removeFromTopic(Subscription subscription) {
+    if (subscription.match == MatchPolicy.EXACT) {
+      subscriptions.computeIfPresent(subscription.topic,
+          (t, current) -> without(current, subscription));
+      return;
+    }
+    patternLock.writeLock().lock();
+    try {
+      if (subscription.match == MatchPolicy.PREFIX) {
+        prefixSubscriptions.remove(subscription);
       } else {
-        return false;
+        wildcardSubscriptions.remove(subscription);
+      }
+      patternSubscriptionCount--;
+    } finally {
+      patternLock.writeLock().unlock();
+    }
+  }
+
+  private static Subscription[] with(Subscription[] current, Subscription subscription) {
+    if (current == null) {
+      return new Subscription[]{subscription};
+    }
+    final Subscription[] result = Arrays.copyOf(current, current.length + 1);
+    result[current.length] = subscription;
+    return result;
+  }
+
+  // returning null drops the topic from the map once its last subscriber is gone
+  private static Subscription[] without(Subscription[] current, Subscription subscription) {
+    for (int i = 0; i < current.length; i++) {
+      if (current[i] == subscription) {
+        if (current.length == 1) {
+          return null;
+        }
+        final Subscription[] result = new Subscription[current.length - 1];
+        System.arraycopy(current, 0, result, 0, i);
+        System.arraycopy(current, i + 1, result, i, current.length - i - 1);
+        return result;
       }
-    };
-    this.subscriptions.removeIf(checkId);
-    this.registrations.removeIf(checkId);
-  }
-
-  private boolean removeEntry(List<Subscription> list, WampSession session, long entryId) {
-    final Iterator<Subscription> it = list.iterator();
-    while (it.hasNext()) {
-      final Subscription s = it.next();
-      if (s.id == entryId && s.consumer == session) {
-        it.remove();
-        return true;
+    }
+    return current;
+  }
+
+  private static Subscription[] without(Subscription[] current, Set<Subscription> removed) {
+    final Subscription[] result = new Subscription[current.length];
+    int length = 0;
+    for (Subscription subscription : current) {
+      if (!removed.contains(subscription)) {
+        result[length++] = subscription;
       }
     }
-    return false;
+    return length == 0 ? null : length == current.length ? current : Arrays.copyOf(result, length);
   }
 
   // pass in the session so that adversarial or buggy clients can't unsubscribe s/o else
-  public synchronized boolean removeSubscription(WampSession session, long subscriptionId) {
-    return removeEntry(subscriptions, session, subscriptionId);
+  public boolean removeSubscription(WampSession session, long subscriptionId) {
+    final Subscription subscription = subscriptionsById.get(subscriptionId);
+    if (subscription == null || subscription.consumer != session
+        || !subscriptionsById.remove(subscriptionId, subscription)) {
+      return false;
+    }
+    removeFromTopic(subscription);
+    removeSessionEntry(sessionSubscriptions, subscription);
+    subscriptionIdGenerator.release(subscriptionId);
+    return true;
   }
 
-  public synchronized boolean removeRegistration(WampSession session, long registrationId) {
-    return removeEntry(registrations, session, registrationId);
+  public boolean removeRegistration(WampSession session, long registrationId) {
+    final Subscription registration = registrationsById.get(registrationId);
+    if (registration == null || registration.consumer != session
+        || !registrationsById.remove(registrationId, registration)) {
+      return false;
+    }
+    registrations.remove(registration.topic, registration);
+    removeSessionEntry(sessionRegistrations, registration);
+    subscriptionIdGenerator.release(registrationId);
+    return true;
   }
 
   @Override
@@ -183,11 +468,17 @@ public class Realm {
     final Uri topic;
     final long id;
     final WampSession consumer;
+    final MatchPolicy match;
 
     Subscription(WampSession consumer, long id, Uri topic) {
+      this(consumer, id, topic, MatchPolicy.EXACT);
+    }
+
+    Subscription(WampSession consumer, long id, Uri topic, MatchPolicy match) {
       this.consumer = consumer;
       this.id = id;
       this.topic = topic;
+      this.match = match;
     }
 
     @Override
@@ -1,6 +1,7 @@
 package io.vertx.wamp;
 
 import io.vertx.core.http.ServerWebSocket;
+import io.vertx.core.net.NetSocket;
 import io.vertx.wamp.messages.EventMessage;
 
 /*
@@ -22,6 +23,17 @@ public interface SecurityPolicy<T extends SecurityPolicy.ClientInfo> {
    */
   T authenticateConnection(ServerWebSocket webSocket);
 
+  /*
+   * Same as above for connections using the RawSocket transport, which are
+   * rejected unless the policy overrides this.
+   *
+   * @return null if authentication failed, a ClientInfo to be used for subsequent
+   *         authorization otherwise
+   */
+  default T authenticateConnection(NetSocket socket) {
+    return null;
+  }
+
   /*
    * Indicate that a connection has been terminated to enable cleanup of any
    * associated resources inside the policy
@@ -70,5 +82,21 @@ public interface SecurityPolicy<T extends SecurityPolicy.ClientInfo> {
 
     @SuppressWarnings("java:S3740")
     SecurityPolicy getPolicy();
+
+    /*
+     * The authentication ID of the client, used by publishers to exclude or
+     * select subscribers via exclude_authid / eligible_authid
+     */
+    default String getAuthId() {
+      return null;
+    }
+
+    /*
+     * The authentication role of the client, used by publishers to exclude or
+     * select subscribers via exclude_authrole / eligible_authrole
+     */
+    default String getAuthRole() {
+      return null;
+    }
   }
 }
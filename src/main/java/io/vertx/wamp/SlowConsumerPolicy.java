@@ -0,0 +1,26 @@
+package io.vertx.wamp;
+
+/**
+ * What happens to the events for a client which doesn't read them as fast as they are published,
+ * once the outbound queue of its session is full. Other messages answer requests of the client
+ * and are never dropped.
+ */
+public enum SlowConsumerPolicy {
+  /**
+   * Drops the event being sent
+   */
+  DROP_NEWEST,
+  /**
+   * Drops the longest queued event to make room for the one being sent
+   */
+  DROP_OLDEST,
+  /**
+   * Replaces a queued event of the same subscription by the one being sent, so that the client
+   * only gets the latest one, and drops the event being sent if there is none
+   */
+  CONFLATE,
+  /**
+   * Disconnects the session with wamp.close.system_shutdown
+   */
+  DISCONNECT
+}
@@ -19,14 +19,88 @@ public class Uri {
   public final static Uri AUTHORIZATION_FAILED = new Uri("wamp.error.authorization_failed");
   public final static Uri NO_SUCH_REALM = new Uri("wamp.error.no_such_realm");
   public final static Uri NO_SUCH_ROLE = new Uri("wamp.error.no_such_role");
+
+  // direct-mapped by hash, a slot simply gets overwritten when another URI hashes to it. instances
+  // are immutable, so reading a slot without synchronization is fine
+  private static final int CACHE_SIZE = 4096;
+  private static final Uri[] cache = new Uri[CACHE_SIZE];
+
   private final String value;
+  private final int hash;
+  // split lazily, only URIs used for pattern matching need them
+  private String[] components;
 
   public Uri(String string) {
-    // advanced profile sometimes allows empty URI components, out of scope for now
-    if (!string.matches("^([^\\s\\.#]+\\.)*([^\\s\\.#]+)$")) {
+    this(string, false);
+  }
+
+  private Uri(String string, boolean pattern) {
+    if (!isValid(string, pattern)) {
       throw new InvalidUriException(string);
     }
     this.value = string;
+    this.hash = string.hashCode();
+  }
+
+  /**
+   * Returns the URI for the string, reusing a previously created instance for the same string if
+   * possible. Meant for URIs received from peers, where the same topics and procedures come up
+   * over and over again.
+   *
+   * @param string the URI
+   * @return the parsed URI
+   * @throws InvalidUriException if the URI is malformed
+   */
+  public static Uri valueOf(String string) {
+    final int slot = string.hashCode() & (CACHE_SIZE - 1);
+    final Uri cached = cache[slot];
+    if (cached != null && cached.value.equals(string)) {
+      return cached;
+    }
+    final Uri uri = new Uri(string);
+    cache[slot] = uri;
+    return uri;
+  }
+
+  /**
+   * Creates a URI to be used as a subscription pattern. In contrast to regular URIs, patterns may
+   * contain empty components which act as wildcards, e.g. {@code com..temperature}.
+   *
+   * @param string the pattern
+   * @return the parsed pattern
+   * @throws InvalidUriException if the pattern is malformed
+   */
+  public static Uri pattern(String string) {
+    return new Uri(string, true);
+  }
+
+  // components are separated by dots and must not contain whitespace or '#'. only patterns may
+  // have empty components
+  private static boolean isValid(String string, boolean pattern) {
+    int componentLength = 0;
+    for (int i = 0; i < string.length(); i++) {
+      final char c = string.charAt(i);
+      if (c == '.') {
+        if (componentLength == 0 && !pattern) {
+          return false;
+        }
+        componentLength = 0;
+      } else if (c == '#' || c == ' ' || c == '\t' || c == '\n' || c == '\u000b' || c == '\f'
+          || c == '\r') {
+        return false;
+      } else {
+        componentLength++;
+      }
+    }
+    return componentLength > 0 || pattern;
+  }
+
+  // the dot-separated components of this URI, must not be modified
+  String[] getComponents() {
+    if (components == null) {
+      components = value.split("\\.", -1);
+    }
+    return components;
   }
 
   @Override
@@ -36,21 +110,25 @@ public class Uri {
 
   @Override
   public int hashCode() {
-    return value.hashCode();
+    return hash;
   }
 
   @Override
   public boolean equals(Object obj) {
+    if (obj == this) {
+      return true;
+    }
     if (!(obj instanceof Uri)) {
       return false;
     }
-    return value.equals(((Uri) obj).value);
+    final Uri other = (Uri) obj;
+    return hash == other.hash && value.equals(other.value);
   }
 
   public static class InvalidUriException extends IllegalArgumentException {
 
     InvalidUriException(String uri) {
-      super(uri + "is not a valid URI");
+      super(uri + " is not a valid URI");
     }
   }
 }
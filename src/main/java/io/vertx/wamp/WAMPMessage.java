@@ -1,5 +1,6 @@
 package io.vertx.wamp;
 
+import java.io.IOException;
 import java.util.List;
 
 public interface WAMPMessage {
@@ -13,6 +14,14 @@ public interface WAMPMessage {
   // List<Object> (where Object is one of the other types
   List<Object> getPayload();
 
+  // streams the same elements as getPayload() into the writer, messages sent by the router
+  // override it to skip building the list
+  default void writePayload(PayloadWriter writer) throws IOException {
+    for (Object element : getPayload()) {
+      writer.writeValue(element);
+    }
+  }
+
   // only contains Broker/PubSub functionality for now
   // Dealer / RPC still TBD
   enum Type {
@@ -37,6 +46,15 @@ public interface WAMPMessage {
     INVOCATION(68),
     YIELD(70);
 
+    // indexed by message code, so that decoding a message doesn't search through values()
+    private static final Type[] byCode = new Type[71];
+
+    static {
+      for (Type type : values()) {
+        byCode[type.messageCode] = type;
+      }
+    }
+
     private final int messageCode;
 
     Type(int messageCode) {
@@ -47,12 +65,15 @@ public interface WAMPMessage {
       if (code == null) {
         throw new WAMPProtocolException("No message type in message");
       }
-      for (Type v : values()) {
-        if (v.messageCode == code) {
-          return v;
-        }
+      return findByCode(code.intValue());
+    }
+
+    static public Type findByCode(int code) {
+      final Type type = code >= 0 && code < byCode.length ? byCode[code] : null;
+      if (type == null) {
+        throw new WAMPProtocolException("Unknown message type " + code);
       }
-      throw new WAMPProtocolException("Unknown message type " + code);
+      return type;
     }
 
     public int getMessageCode() {
@@ -0,0 +1,116 @@
+package io.vertx.wamp;
+
+import io.vertx.core.Closeable;
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+import io.vertx.core.net.NetServer;
+import io.vertx.core.net.NetSocket;
+import io.vertx.wamp.impl.RawSocketMessageTransport;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Serves WAMP over RawSocket, i.e. length prefixed messages straight over TCP without the HTTP
+ * upgrade and framing of websockets. Meant for backend peers, it can serve the same realms as a
+ * {@link WAMPWebsocketServer} so that sessions of both meet in them.
+ */
+public class WAMPRawSocketServer implements RealmProvider, Closeable {
+
+  private final NetServer netServer;
+  private final List<Realm> realms = new ArrayList<>();
+  // sessions are added and removed on the event loops of their connections
+  private final Set<WampSession> connections = ConcurrentHashMap.newKeySet();
+  @SuppressWarnings("java:S3740")
+  private SecurityPolicy securityPolicy;
+  private int maxMessageLength = RawSocketMessageTransport.MAX_MESSAGE_LENGTH;
+
+  protected WAMPRawSocketServer(Vertx vertx) {
+    netServer = vertx.createNetServer();
+    netServer.connectHandler(this::handleConnection);
+  }
+
+  public static WAMPRawSocketServer create(Vertx vertx) {
+    return new WAMPRawSocketServer(vertx);
+  }
+
+  @Override
+  public List<Realm> getRealms() {
+    return Collections.unmodifiableList(realms);
+  }
+
+  public WAMPRawSocketServer addRealm(Realm realm) {
+    if (this.realms.contains(realm)) {
+      throw new WAMPWebsocketServer.RealmExistsException();
+    }
+    this.realms.add(realm);
+    return this;
+  }
+
+  /**
+   * Sets the policy authenticating connections through
+   * {@link SecurityPolicy#authenticateConnection(NetSocket)} and authorizing their requests.
+   *
+   * @param securityPolicy the policy, typically the one of the websocket server
+   * @return this server
+   */
+  public synchronized WAMPRawSocketServer withSecurityPolicy(SecurityPolicy<?> securityPolicy) {
+    if (!this.connections.isEmpty()) {
+      throw new WAMPWebsocketServer.ConnectionsAlreadyEstablishedException();
+    }
+    this.securityPolicy = securityPolicy;
+    return this;
+  }
+
+  /**
+   * Limits the length of the messages peers may send, which is announced to them in the
+   * handshake. Applies to connections established afterwards.
+   *
+   * @param maxMessageLength length in bytes, rounded down to a power of two between 512 and 2^24
+   * @return this server
+   */
+  public synchronized WAMPRawSocketServer withMaxMessageLength(int maxMessageLength) {
+    if (maxMessageLength < 512) {
+      throw new IllegalArgumentException("Invalid maximum message length");
+    }
+    this.maxMessageLength = maxMessageLength;
+    return this;
+  }
+
+  public Future<WAMPRawSocketServer> listen(int port) {
+    return this.netServer.listen(port).map(this);
+  }
+
+  public Future<WAMPRawSocketServer> listen(int port, String host) {
+    return this.netServer.listen(port, host).map(this);
+  }
+
+  private void handleConnection(NetSocket socket) {
+    SecurityPolicy.ClientInfo clientInfo = null;
+    if (securityPolicy != null) {
+      clientInfo = securityPolicy.authenticateConnection(socket);
+      if (clientInfo == null) {
+        socket.close();
+        return;
+      }
+    }
+    final RawSocketMessageTransport messageTransport = new RawSocketMessageTransport(socket,
+        maxMessageLength);
+    final WampSession session = WampSession.establish(messageTransport, clientInfo, this);
+    connections.add(session);
+    messageTransport.closeHandler(voidResult -> connections.remove(session));
+  }
+
+  public void close() {
+    close(null);
+  }
+
+  @Override
+  public void close(Promise<Void> promise) {
+    WampSession.shutdownAll(connections, Uri.CLOSE_REALM)
+        .onComplete(result -> netServer.close(promise));
+  }
+}
@@ -1,7 +1,7 @@
 package io.vertx.wamp;
 
 import io.vertx.core.Closeable;
-import io.vertx.core.CompositeFuture;
+import io.vertx.core.Context;
 import io.vertx.core.Future;
 import io.vertx.core.Promise;
 import io.vertx.core.Vertx;
@@ -9,26 +9,40 @@ import io.vertx.core.http.HttpServer;
 import io.vertx.core.http.HttpServerOptions;
 import io.vertx.core.http.ServerWebSocket;
 import io.vertx.core.net.SocketAddress;
+import io.vertx.wamp.impl.LocalMessageTransport;
+import io.vertx.wamp.impl.Serializer;
 import io.vertx.wamp.impl.WebsocketMessageTransport;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
 
 public class WAMPWebsocketServer implements RealmProvider, Closeable {
 
   public final static String USER_AGENT = "vertx-wamp-1.0";
 
+  private final Vertx vertx;
   private final HttpServer httpServer;
   private final List<Realm> realms = new ArrayList<>();
-  private final List<WampSession> connections = new ArrayList<>();
+  // websocket sessions are added and removed on the HTTP server's context, local ones on their own
+  private final Set<WampSession> connections = ConcurrentHashMap.newKeySet();
   @SuppressWarnings("java:S3740")
   private SecurityPolicy securityPolicy;
+  private int maxBatchSize = WebsocketMessageTransport.DEFAULT_MAX_BATCH_SIZE;
+  private long maxBatchDelay = WebsocketMessageTransport.DEFAULT_MAX_BATCH_DELAY;
+  private int maxQueuedMessages = 0;
+  private SlowConsumerPolicy slowConsumerPolicy = null;
+  private final LongAdder droppedEvents = new LongAdder();
+  private int maxPendingCalls = 0;
+  private int maxPendingPublications = 0;
 
   protected WAMPWebsocketServer(Vertx vertx) {
+    this.vertx = vertx;
     final HttpServerOptions options = new HttpServerOptions();
-    options.addWebSocketSubProtocol("wamp.2.json");
-    options.addWebSocketSubProtocol("wamp.2.msgpack");
+    Serializer.all().forEach(serializer ->
+        options.addWebSocketSubProtocol(serializer.getSubProtocol()));
     httpServer = vertx.createHttpServer(options);
     httpServer.webSocketHandler(this::handleWebsocketConnection);
   }
@@ -58,6 +72,72 @@ public class WAMPWebsocketServer implements RealmProvider, Closeable {
     return this;
   }
 
+  /**
+   * Limits how outbound messages are coalesced into frames for clients using one of the batched
+   * subprotocols (e.g. wamp.2.json.batched). Applies to connections established afterwards.
+   *
+   * @param maxBatchSize  size in bytes after which a batch is sent right
+   *                      away
+   * @param maxBatchDelay milliseconds a message waits for further ones, 0 to only collect the
+   *                      messages sent during the same event loop turn
+   * @return this server
+   */
+  public synchronized WAMPWebsocketServer withBatchLimits(int maxBatchSize, long maxBatchDelay) {
+    if (maxBatchSize <= 0 || maxBatchDelay < 0) {
+      throw new IllegalArgumentException("Invalid batch limits");
+    }
+    this.maxBatchSize = maxBatchSize;
+    this.maxBatchDelay = maxBatchDelay;
+    return this;
+  }
+
+  /**
+   * Bounds the messages each session holds back while its websocket's write queue is full, so
+   * that a client not reading its events can't make the router buffer them without limit. Applies
+   * to connections established afterwards; by default messages are never held back.
+   *
+   * @param maxQueuedMessages messages queued per session after which the policy applies to
+   *                          further events
+   * @param policy            what to do with the events of a client whose queue is full
+   * @return this server
+   */
+  public synchronized WAMPWebsocketServer withOutboundQueueLimit(int maxQueuedMessages,
+      SlowConsumerPolicy policy) {
+    if (maxQueuedMessages <= 0 || policy == null) {
+      throw new IllegalArgumentException("Invalid outbound queue limit");
+    }
+    this.maxQueuedMessages = maxQueuedMessages;
+    this.slowConsumerPolicy = policy;
+    return this;
+  }
+
+  /**
+   * @return the number of events dropped for slow consumers by the policy set through
+   * {@link #withOutboundQueueLimit(int, SlowConsumerPolicy)}, over all sessions
+   */
+  public long getDroppedEventCount() {
+    return droppedEvents.sum();
+  }
+
+  /**
+   * Limits the work each client can have the router do at once: once it has as many CALLs
+   * waiting for results or PUBLISHes being fanned out, the websocket isn't read from until some of
+   * them complete. Applies to connections established afterwards.
+   *
+   * @param maxPendingCalls        CALLs per session waiting for their result, 0 for no limit
+   * @param maxPendingPublications PUBLISHes per session whose events haven't been handed to all
+   *                               subscribers yet, 0 for no limit
+   * @return this server
+   */
+  public synchronized WAMPWebsocketServer withInboundLimits(int maxPendingCalls,
+      int maxPendingPublications) {
+    if (maxPendingCalls < 0 || maxPendingPublications < 0) {
+      throw new IllegalArgumentException("Invalid inbound limits");
+    }
+    this.maxPendingCalls = maxPendingCalls;
+    this.maxPendingPublications = maxPendingPublications;
+    return this;
+  }
 
   public Future<WAMPWebsocketServer> listen(int port) {
     return this.httpServer.listen(port).map(this);
@@ -77,14 +157,38 @@ public class WAMPWebsocketServer implements RealmProvider, Closeable {
         return;
       }
     }
-    final MessageTransport messageTransport = new WebsocketMessageTransport(webSocket);
+    // the subprotocol is only negotiated by the handshake, so the serializer is resolved once
+    // right after it rather than on every message
+    webSocket.accept();
+    final Serializer serializer = Serializer.forSubProtocol(webSocket.subProtocol());
+    final MessageTransport messageTransport = new WebsocketMessageTransport(webSocket, serializer,
+        maxBatchSize, maxBatchDelay, maxQueuedMessages, slowConsumerPolicy, droppedEvents);
     final WampSession session = WampSession.establish(messageTransport, clientInfo, this);
+    session.limitInbound(maxPendingCalls, maxPendingPublications);
     connections.add(session);
     webSocket.closeHandler(voidResult ->
         // Investigate whether this may clash with shutdown
         connections.remove(session)
     );
-    webSocket.accept();
+  }
+
+  /**
+   * Connects a peer running in the same JVM as the router. Its messages are passed as objects in
+   * both directions, without being encoded, but otherwise go through a session and the security
+   * policy like those of any other client.
+   *
+   * @param clientInfo the peer's client info for authorizing its requests, null if there is no
+   *                   security policy; the peer is trusted as is, without authenticating it
+   * @return the peer's end of the connection, receiving and sending messages on the session's
+   * context
+   */
+  public MessageTransport connectLocal(SecurityPolicy.ClientInfo clientInfo) {
+    final Context context = vertx.getOrCreateContext();
+    final LocalMessageTransport messageTransport = LocalMessageTransport.connect(context);
+    final WampSession session = WampSession.establish(messageTransport, clientInfo, this, context);
+    connections.add(session);
+    messageTransport.closeHandler(voidResult -> connections.remove(session));
+    return messageTransport.getPeer();
   }
 
   public void close() {
@@ -93,13 +197,8 @@ public class WAMPWebsocketServer implements RealmProvider, Closeable {
 
   @Override
   public void close(Promise<Void> promise) {
-    @SuppressWarnings("java:S3740") final List<Future> promises = connections.parallelStream()
-        .map(session -> {
-          final Promise sessionPromise = Promise.promise();
-          session.shutdown(Uri.CLOSE_REALM, sessionPromise);
-          return sessionPromise.future();
-        }).collect(Collectors.toList());
-    CompositeFuture.join(promises).onComplete(result -> httpServer.close(promise));
+    WampSession.shutdownAll(connections, Uri.CLOSE_REALM)
+        .onComplete(result -> httpServer.close(promise));
   }
 
   public static class RealmExistsException extends RuntimeException {
@@ -5,9 +5,12 @@ import static io.vertx.wamp.Uri.NO_SUCH_SUBSCRIPTION;
 import static io.vertx.wamp.Uri.PROCEDURE_ALREADY_EXISTS;
 
 import io.vertx.core.AsyncResult;
+import io.vertx.core.CompositeFuture;
+import io.vertx.core.Context;
 import io.vertx.core.Future;
 import io.vertx.core.Handler;
 import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
 import io.vertx.wamp.messages.AbortMessage;
 import io.vertx.wamp.messages.CallMessage;
 import io.vertx.wamp.messages.GoodbyeMessage;
@@ -22,51 +25,88 @@ import io.vertx.wamp.messages.YieldMessage;
 import io.vertx.wamp.util.NonDuplicateRandomIdGenerator;
 import java.util.AbstractMap;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.EnumMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.function.Consumer;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.function.BiConsumer;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import java.util.stream.Collectors;
 
 /**
  * Represents a session to the server. The underlying transport lifecycle is tied to the session and
  * will be closed once the session terminates.
+ * <p>
+ * Most sessions are idle subscribers, so an established session without pending invocations is
+ * kept to about 135 bytes of heap (as measured on a 64 bit JVM with compressed oops, including
+ * its session ID registration), the websocket transport adds about 75 more. State only some
+ * sessions need is allocated on first use and stateless parts are shared by all sessions.
  */
 public class WampSession {
 
   private final static NonDuplicateRandomIdGenerator sessionIdGenerator = new NonDuplicateRandomIdGenerator();
+  private static final Logger logger = Logger.getLogger(WampSession.class.getCanonicalName());
 
-  private final Logger logger = Logger.getLogger(WampSession.class.getCanonicalName());
   private final MessageTransport messageTransport;
   private final SecurityPolicy.ClientInfo clientInfo;
-  private final Long sessionId;
+  private final long sessionId;
   private final RealmProvider realmProvider;
+  // the context the transport is handled on, events for this session are delivered on it
+  private final Context context;
   private Realm realm;
   private State state;
   private Handler<AsyncResult<Void>> shutdownHandler;
-  private final ConcurrentHashMap<Long, Promise<AbstractMap.SimpleImmutableEntry<List<Object>, Map<String, Object>>>>
-      pendingInvocations = new ConcurrentHashMap<>();
-
-  private final Map<WAMPMessage.Type, Consumer<WAMPMessage>> messageHandlers = Map.of(
-      WAMPMessage.Type.HELLO, (WAMPMessage msg) -> handleHello((HelloMessage) msg),
-      WAMPMessage.Type.SUBSCRIBE, (WAMPMessage msg) -> handleSubscribe((SubscribeMessage) msg),
-      WAMPMessage.Type.UNSUBSCRIBE,
-      (WAMPMessage msg) -> handleUnsubscribe((UnsubscribeMessage) msg),
-      WAMPMessage.Type.PUBLISH, (WAMPMessage msg) -> handlePublish((PublishMessage) msg),
-      WAMPMessage.Type.ABORT, (WAMPMessage msg) -> handleAbort((AbortMessage) msg),
-      WAMPMessage.Type.GOODBYE, (WAMPMessage msg) -> handleGoodbye((GoodbyeMessage) msg),
-      WAMPMessage.Type.REGISTER, (WAMPMessage msg) -> handleRegister((RegisterMessage) msg),
-      WAMPMessage.Type.UNREGISTER, (WAMPMessage msg) -> handleUnregister((UnregisterMessage) msg),
-      WAMPMessage.Type.CALL, (WAMPMessage msg) -> handleCall((CallMessage) msg),
-      WAMPMessage.Type.YIELD, (WAMPMessage msg) -> handleYield((YieldMessage) msg)
-  );
+  // only sessions providing procedures need it, so it's created on the first invocation
+  private volatile ConcurrentHashMap<Long, Promise<YieldMessage>> pendingInvocations;
+  // inbound flow control, 0 meaning no limit. The counters are released on whichever event loop
+  // completes the work, reading is only paused and resumed on the session's context
+  private int maxPendingCalls;
+  private int maxPendingPublications;
+  private volatile int pendingCalls;
+  private volatile int pendingPublications;
+  private boolean readingPaused;
+
+  private static final AtomicIntegerFieldUpdater<WampSession> pendingCallsUpdater =
+      AtomicIntegerFieldUpdater.newUpdater(WampSession.class, "pendingCalls");
+  private static final AtomicIntegerFieldUpdater<WampSession> pendingPublicationsUpdater =
+      AtomicIntegerFieldUpdater.newUpdater(WampSession.class, "pendingPublications");
+
+  // shared by all sessions, the handlers get the session a message was received on
+  private static final Map<WAMPMessage.Type, BiConsumer<WampSession, WAMPMessage>>
+      messageHandlers = new EnumMap<>(WAMPMessage.Type.class);
+
+  static {
+    messageHandlers.put(WAMPMessage.Type.HELLO,
+        (session, msg) -> session.handleHello((HelloMessage) msg));
+    messageHandlers.put(WAMPMessage.Type.SUBSCRIBE,
+        (session, msg) -> session.handleSubscribe((SubscribeMessage) msg));
+    messageHandlers.put(WAMPMessage.Type.UNSUBSCRIBE,
+        (session, msg) -> session.handleUnsubscribe((UnsubscribeMessage) msg));
+    messageHandlers.put(WAMPMessage.Type.PUBLISH,
+        (session, msg) -> session.handlePublish((PublishMessage) msg));
+    messageHandlers.put(WAMPMessage.Type.ABORT,
+        (session, msg) -> session.handleAbort((AbortMessage) msg));
+    messageHandlers.put(WAMPMessage.Type.GOODBYE,
+        (session, msg) -> session.handleGoodbye((GoodbyeMessage) msg));
+    messageHandlers.put(WAMPMessage.Type.REGISTER,
+        (session, msg) -> session.handleRegister((RegisterMessage) msg));
+    messageHandlers.put(WAMPMessage.Type.UNREGISTER,
+        (session, msg) -> session.handleUnregister((UnregisterMessage) msg));
+    messageHandlers.put(WAMPMessage.Type.CALL,
+        (session, msg) -> session.handleCall((CallMessage) msg));
+    messageHandlers.put(WAMPMessage.Type.YIELD,
+        (session, msg) -> session.handleYield((YieldMessage) msg));
+  }
 
   private WampSession(MessageTransport messageTransport,
       SecurityPolicy.ClientInfo clientInfo,
-      RealmProvider realmProvider) {
+      RealmProvider realmProvider,
+      Context context) {
     this.messageTransport = messageTransport;
     messageTransport.setReceiveHandler(this::handleMessage);
     messageTransport.setErrorHandler(this::abortConnection);
@@ -75,13 +115,36 @@ public class WampSession {
     this.realmProvider = realmProvider;
     this.state = State.ESTABLISHING;
     this.sessionId = sessionIdGenerator.next();
+    this.context = context;
   }
 
   // constructor function
   public static WampSession establish(MessageTransport messageTransport,
       SecurityPolicy.ClientInfo clientInfo,
       RealmProvider realmProvider) {
-    return new WampSession(messageTransport, clientInfo, realmProvider);
+    return new WampSession(messageTransport, clientInfo, realmProvider, Vertx.currentContext());
+  }
+
+  // for transports which aren't handled on the context establishing the session
+  static WampSession establish(MessageTransport messageTransport,
+      SecurityPolicy.ClientInfo clientInfo,
+      RealmProvider realmProvider,
+      Context context) {
+    return new WampSession(messageTransport, clientInfo, realmProvider, context);
+  }
+
+  /**
+   * Caps the work a client can have the router do at once. Once either limit is reached, no
+   * further messages are read from the client until the work has drained below it, so that a
+   * client flooding the router can't starve the others handled on its event loop.
+   *
+   * @param maxPendingCalls        CALLs waiting for their result, 0 for no limit
+   * @param maxPendingPublications PUBLISHes whose events haven't been handed to all subscribers'
+   *                               transports yet, 0 for no limit
+   */
+  void limitInbound(int maxPendingCalls, int maxPendingPublications) {
+    this.maxPendingCalls = maxPendingCalls;
+    this.maxPendingPublications = maxPendingPublications;
   }
 
   public Future<Void> sendMessage(WAMPMessage message) {
@@ -90,6 +153,11 @@ public class WampSession {
     return promise.future();
   }
 
+  // passing no handler avoids allocating a promise per message for fire-and-forget deliveries
+  public void sendMessage(WAMPMessage message, Handler<AsyncResult<Void>> completeHandler) {
+    trySendOrClose(message, completeHandler);
+  }
+
   private void trySendOrClose(WAMPMessage message, Handler<AsyncResult<Void>> completeHandler) {
     try {
       if (completeHandler != null) {
@@ -102,6 +170,18 @@ public class WampSession {
     }
   }
 
+  Context getContext() {
+    return context;
+  }
+
+  Realm getRealm() {
+    return realm;
+  }
+
+  long getSessionId() {
+    return sessionId;
+  }
+
   public SecurityPolicy.ClientInfo getClientInfo() {
     return clientInfo;
   }
@@ -113,7 +193,32 @@ public class WampSession {
 
   @Override
   public boolean equals(Object other) {
-    return (other instanceof WampSession && ((WampSession) other).sessionId.equals(sessionId));
+    return (other instanceof WampSession && ((WampSession) other).sessionId == sessionId);
+  }
+
+  @Override
+  public int hashCode() {
+    return Long.hashCode(sessionId);
+  }
+
+  /**
+   * Shuts down the sessions of a server being closed, clearing each realm of them in one go rather
+   * than having every session scan it on its own.
+   *
+   * @return completes once all sessions have been shut down, whether they succeeded or not
+   */
+  static Future<Void> shutdownAll(Collection<WampSession> sessions, Uri reason) {
+    sessions.stream()
+        .filter(session -> session.getRealm() != null)
+        .collect(Collectors.groupingBy(WampSession::getRealm))
+        .forEach(Realm::removeSessions);
+    @SuppressWarnings("java:S3740") final List<Future> shutdowns = sessions.stream()
+        .map(session -> {
+          final Promise<Void> promise = Promise.promise();
+          session.shutdown(reason, promise);
+          return (Future) promise.future();
+        }).collect(Collectors.toList());
+    return CompositeFuture.join(shutdowns).mapEmpty();
   }
 
   public void shutdown(Uri reason, Handler<AsyncResult<Void>> shutdownHandler) {
@@ -134,12 +239,32 @@ public class WampSession {
 
   public Future<AbstractMap.SimpleImmutableEntry<List<Object>, Map<String, Object>>> invokeRegistration(
       InvocationMessage msg) {
+    return invoke(msg).map(result -> new AbstractMap.SimpleImmutableEntry<>(result.getArguments(),
+        result.getArgumentsKw()));
+  }
+
+  // completes with the callee's YIELD, whose arguments may not have been decoded yet
+  Future<YieldMessage> invoke(InvocationMessage msg) {
     return Future.future((promise) -> {
-      pendingInvocations.put(msg.getId(), promise);
+      pendingInvocations().put(msg.getId(), promise);
       sendMessage(msg);
     });
   }
 
+  private ConcurrentHashMap<Long, Promise<YieldMessage>> pendingInvocations() {
+    ConcurrentHashMap<Long, Promise<YieldMessage>> invocations = pendingInvocations;
+    if (invocations == null) {
+      synchronized (this) {
+        invocations = pendingInvocations;
+        if (invocations == null) {
+          invocations = new ConcurrentHashMap<>();
+          pendingInvocations = invocations;
+        }
+      }
+    }
+    return invocations;
+  }
+
   private void handlePublish(PublishMessage msg) {
     logger.log(Level.FINEST, "Publishing message: {0}", msg);
     if (clientInfo != null && !clientInfo.getPolicy()
@@ -149,15 +274,38 @@ public class WampSession {
           Map.of(),
           Uri.NOT_AUTHORIZED));
     } else {
-      realm.publishMessage(msg).onSuccess(publicationId ->
-          sendMessage(MessageFactory.createPublishedMessage(msg.getId(), publicationId)));
+      final Future<Long> publication;
+      if (maxPendingPublications > 0) {
+        pendingPublicationsUpdater.incrementAndGet(this);
+        publication = realm.publishMessage(this, msg, v -> releasePublication());
+        updateReading();
+      } else {
+        publication = realm.publishMessage(this, msg);
+      }
+      publication.onFailure(err ->
+          logger.log(Level.WARNING, "Invalid publication {0}: {1}", new Object[]{sessionId,
+              err.getMessage()}));
+      // PUBLISHED or ERROR is only sent when the publisher asked for it
+      if (msg.getOptions() != null && Boolean.TRUE.equals(msg.getOptions().get("acknowledge"))) {
+        publication
+            .onSuccess(publicationId ->
+                sendMessage(MessageFactory.createPublishedMessage(msg.getId(), publicationId)))
+            .onFailure(err ->
+                sendMessage(MessageFactory.createErrorMessage(WAMPMessage.Type.PUBLISH,
+                    msg.getId(),
+                    Map.of(),
+                    Uri.INVALID_ARGUMENT)));
+      }
     }
   }
 
   private void handleYield(YieldMessage msg) {
-    this.pendingInvocations.computeIfPresent(msg.getRequestId(), (id, promise) -> {
-      promise.complete(
-          new AbstractMap.SimpleImmutableEntry<>(msg.getArguments(), msg.getArgumentsKw()));
+    final ConcurrentHashMap<Long, Promise<YieldMessage>> invocations = pendingInvocations;
+    if (invocations == null) {
+      return;
+    }
+    invocations.computeIfPresent(msg.getRequestId(), (id, promise) -> {
+      promise.complete(msg);
       return null;
     });
   }
@@ -171,13 +319,19 @@ public class WampSession {
           Map.of(),
           Uri.NOT_AUTHORIZED));
     } else {
-      realm.callProcedure(msg.getProcedure(),
-          msg.getArguments(),
-          msg.getArgumentsKw())
-          .onSuccess(arguments ->
+      final Future<YieldMessage> call = realm.callProcedure(msg);
+      if (maxPendingCalls > 0) {
+        pendingCallsUpdater.incrementAndGet(this);
+        call.onComplete(result -> releaseCall());
+        updateReading();
+      }
+      call
+          .onSuccess(result ->
               sendMessage(MessageFactory.createResultMessage(msg.getId(),
                   Collections.emptyMap(),
-                  arguments.getKey(), arguments.getValue())))
+                  result.getRawPayload() == null ? result.getArguments() : null,
+                  result.getRawPayload() == null ? result.getArgumentsKw() : null,
+                  result.getRawPayload())))
           .onFailure(throwable ->
               sendMessage(MessageFactory.createErrorMessage(WAMPMessage.Type.CALL,
                   msg.getId(), Collections.emptyMap(),
@@ -185,6 +339,40 @@ public class WampSession {
     }
   }
 
+  private void releaseCall() {
+    if (pendingCallsUpdater.decrementAndGet(this) == maxPendingCalls - 1) {
+      scheduleReadingUpdate();
+    }
+  }
+
+  private void releasePublication() {
+    if (pendingPublicationsUpdater.decrementAndGet(this) == maxPendingPublications - 1) {
+      scheduleReadingUpdate();
+    }
+  }
+
+  private void scheduleReadingUpdate() {
+    if (context == null || context == Vertx.currentContext()) {
+      updateReading();
+    } else {
+      context.runOnContext(v -> updateReading());
+    }
+  }
+
+  private void updateReading() {
+    final boolean overLimit =
+        maxPendingCalls > 0 && pendingCalls >= maxPendingCalls
+            || maxPendingPublications > 0 && pendingPublications >= maxPendingPublications;
+    if (overLimit != readingPaused && state != State.CLOSED) {
+      readingPaused = overLimit;
+      if (overLimit) {
+        messageTransport.pause();
+      } else {
+        messageTransport.resume();
+      }
+    }
+  }
+
   private void handleGoodbye(GoodbyeMessage msg) {
     logger.log(Level.FINE, "Session received GOODBYE {0}: {1}", new Object[]{sessionId, msg});
     if (this.state == State.ESTABLISHED) {
@@ -211,6 +399,12 @@ public class WampSession {
     }
     this.state = State.CLOSED;
     logger.log(Level.FINE, "Session closed: {0}", sessionId);
+    // callers waiting for this session's results would otherwise hold their credits forever
+    final ConcurrentHashMap<Long, Promise<YieldMessage>> invocations = pendingInvocations;
+    if (invocations != null) {
+      invocations.values().forEach(promise -> promise.tryFail("Callee session closed"));
+      invocations.clear();
+    }
     messageTransport.close();
     if (clientInfo != null) {
       clientInfo.getPolicy().releaseConnection(clientInfo);
@@ -221,7 +415,7 @@ public class WampSession {
   private void handleMessage(WAMPMessage message) {
     final WAMPMessage.Type messageType = message.getType();
     logger.log(Level.FINEST, "Handling message {0}: {1}", new Object[]{sessionId, messageType});
-    if (!state.allowedToReceive().contains(messageType)) {
+    if (!state.isAllowedToReceive(messageType)) {
       logger.log(Level.WARNING, "Protocol violation {0}: message {1} not expected in state {2}",
           new Object[]{sessionId,
               messageType,
@@ -229,14 +423,16 @@ public class WampSession {
       abortConnection(Uri.PROTOCOL_VIOLATION);
       return;
     }
-    if (!messageHandlers.containsKey(messageType)) {
+    final BiConsumer<WampSession, WAMPMessage> handler = messageHandlers.get(messageType);
+    if (handler == null) {
       // if there is no corresponding message handler, then this functionality
       // isn't implemented by us
       logger.log(Level.WARNING, "Unsupported message type {0}: {1}", new Object[]{sessionId,
           messageType});
       abortConnection(Uri.NO_SUCH_ROLE);
+      return;
     }
-    messageHandlers.get(messageType).accept(message);
+    handler.accept(this, message);
   }
 
   private void handleHello(HelloMessage message) {
@@ -274,10 +470,23 @@ public class WampSession {
       return;
     }
 
+    final MatchPolicy match;
+    try {
+      match = MatchPolicy.fromOptions(message.getOptions());
+    } catch (IllegalArgumentException e) {
+      logger.log(Level.WARNING, "Invalid subscription {0}: {1}", new Object[]{sessionId,
+          e.getMessage()});
+      sendMessage(MessageFactory.createErrorMessage(WAMPMessage.Type.SUBSCRIBE,
+          message.getId(),
+          Map.of(),
+          Uri.INVALID_ARGUMENT));
+      return;
+    }
+
     // any event related to the subscription will be delivered via the message transport
     logger.log(Level.FINE, "Subscription added: {0} - {1} - {2}", new Object[]{sessionId, realm,
         message.getTopic()});
-    final long subscriptionId = realm.addSubscription(this, message.getTopic());
+    final long subscriptionId = realm.addSubscription(this, message.getTopic(), match);
     sendMessage(MessageFactory.createSubscribedMessage(message.getId(), subscriptionId));
   }
 
@@ -358,13 +567,24 @@ public class WampSession {
 
     // use a list for easy iteration
     private final List<WAMPMessage.Type> followUpMessages;
+    // one bit per type ordinal, checked for every received message
+    private final long followUpMask;
 
     State(WAMPMessage.Type... followUpMessages) {
       this.followUpMessages = Arrays.asList(followUpMessages);
+      long mask = 0;
+      for (WAMPMessage.Type type : followUpMessages) {
+        mask |= 1L << type.ordinal();
+      }
+      this.followUpMask = mask;
     }
 
     public List<WAMPMessage.Type> allowedToReceive() {
       return this.followUpMessages;
     }
+
+    public boolean isAllowedToReceive(WAMPMessage.Type type) {
+      return (followUpMask & (1L << type.ordinal())) != 0;
+    }
   }
 }
@@ -0,0 +1,121 @@
+package io.vertx.wamp;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Index of wildcard subscriptions. A wildcard pattern only matches topics with the same number of
+ * components, so patterns are grouped by their length first. Within a group, each pattern is
+ * anchored at its last non-empty component: a publish looks up the topic's component at each
+ * anchor position and only checks the patterns found there instead of testing every pattern.
+ * <p>
+ * Not thread-safe, the realm guards access to it.
+ */
+final class WildcardIndex {
+
+  private final Map<Integer, LengthGroup> groups = new HashMap<>();
+
+  void add(Realm.Subscription subscription) {
+    final String[] pattern = subscription.topic.getComponents();
+    final LengthGroup group = groups.computeIfAbsent(pattern.length, LengthGroup::new);
+    final int anchor = anchorPosition(pattern);
+    if (anchor < 0) {
+      group.unanchored.add(subscription);
+    } else {
+      group.anchored.get(anchor)
+          .computeIfAbsent(pattern[anchor], c -> new LinkedHashSet<>())
+          .add(subscription);
+    }
+  }
+
+  void remove(Realm.Subscription subscription) {
+    final String[] pattern = subscription.topic.getComponents();
+    final LengthGroup group = groups.get(pattern.length);
+    if (group == null) {
+      return;
+    }
+    final int anchor = anchorPosition(pattern);
+    if (anchor < 0) {
+      group.unanchored.remove(subscription);
+    } else {
+      final Map<String, Set<Realm.Subscription>> candidates = group.anchored.get(anchor);
+      final Set<Realm.Subscription> bucket = candidates.get(pattern[anchor]);
+      if (bucket != null) {
+        bucket.remove(subscription);
+        if (bucket.isEmpty()) {
+          candidates.remove(pattern[anchor]);
+        }
+      }
+    }
+    if (group.isEmpty()) {
+      groups.remove(pattern.length);
+    }
+  }
+
+  // passes every subscription whose pattern matches the topic to the consumer
+  void collect(Uri topic, Consumer<Realm.Subscription> consumer) {
+    final String[] components = topic.getComponents();
+    final LengthGroup group = groups.get(components.length);
+    if (group == null) {
+      return;
+    }
+    for (int position = 0; position < components.length; position++) {
+      final Map<String, Set<Realm.Subscription>> candidates = group.anchored.get(position);
+      if (candidates.isEmpty()) {
+        continue;
+      }
+      final Set<Realm.Subscription> bucket = candidates.get(components[position]);
+      if (bucket != null) {
+        for (Realm.Subscription subscription : bucket) {
+          // the anchor and everything after it are known to match
+          if (matches(subscription.topic.getComponents(), components, position)) {
+            consumer.accept(subscription);
+          }
+        }
+      }
+    }
+    group.unanchored.forEach(consumer);
+  }
+
+  private static int anchorPosition(String[] pattern) {
+    for (int i = pattern.length - 1; i >= 0; i--) {
+      if (!pattern[i].isEmpty()) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  private static boolean matches(String[] pattern, String[] components, int anchor) {
+    for (int i = 0; i < anchor; i++) {
+      if (!pattern[i].isEmpty() && !pattern[i].equals(components[i])) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static final class LengthGroup {
+
+    // indexed by anchor position, maps the component at that position to its patterns
+    final List<Map<String, Set<Realm.Subscription>>> anchored;
+    // patterns consisting of wildcards only
+    final Set<Realm.Subscription> unanchored = new LinkedHashSet<>();
+
+    LengthGroup(int length) {
+      anchored = new ArrayList<>(length);
+      for (int i = 0; i < length; i++) {
+        anchored.add(new HashMap<>());
+      }
+    }
+
+    boolean isEmpty() {
+      return unanchored.isEmpty() && anchored.stream().allMatch(Map::isEmpty);
+    }
+  }
+}
@@ -0,0 +1,11 @@
+package io.vertx.wamp.impl;
+
+import io.vertx.core.buffer.Buffer;
+import io.vertx.wamp.MessageEncoder;
+
+/**
+ * Encoder of a binary serialization, the buffers it writes are sent as binary frames.
+ */
+public interface BinaryMessageEncoder extends MessageEncoder<Buffer>, BufferMessageEncoder {
+
+}
@@ -0,0 +1,41 @@
+package io.vertx.wamp.impl;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.vertx.wamp.WAMPMessage;
+import java.io.IOException;
+
+/**
+ * Encoder which can write straight into buffers of the channel a message is sent on.
+ */
+public interface BufferMessageEncoder {
+
+  /**
+   * Encodes the message into a buffer obtained from the allocator, typically the pooled allocator
+   * of the channel the message is going to be written to.
+   *
+   * @param message   the message to encode
+   * @param allocator the allocator of the buffer
+   * @return the encoded message, owned by the caller
+   * @throws IOException if the message can't be encoded
+   */
+  default ByteBuf encode(WAMPMessage message, ByteBufAllocator allocator) throws IOException {
+    final ByteBuf buffer = allocator.buffer();
+    try {
+      encode(message, buffer);
+      return buffer;
+    } catch (IOException | RuntimeException e) {
+      buffer.release();
+      throw e;
+    }
+  }
+
+  /**
+   * Appends the encoded message to the buffer, e.g. to put several messages into one frame.
+   *
+   * @param message the message to encode
+   * @param buffer  the buffer to write to, left as it was if the message can't be encoded
+   * @throws IOException if the message can't be encoded
+   */
+  void encode(WAMPMessage message, ByteBuf buffer) throws IOException;
+}
@@ -0,0 +1,97 @@
+package io.vertx.wamp.impl;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.wamp.WAMPMessage;
+import io.vertx.wamp.WAMPProtocolException;
+import io.vertx.wamp.messages.RawPayload;
+import java.io.IOException;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Decodes CBOR messages by streaming over their tokens, just like {@link JsonMessageDecoder} does
+ * for JSON. The arguments of messages which are merely passed on are kept as CBOR bytes.
+ */
+public class CborMessageDecoder extends ListMessageDecoder<Buffer> {
+
+  private static final CBORFactory factory = new CBORFactory();
+
+  @Override
+  public Map.Entry<WAMPMessage.Type, List<Object>> parseMessage(Buffer data) throws IOException {
+    final ByteBuf byteBuf = data.getByteBuf();
+    final byte[] bytes;
+    final int offset;
+    if (byteBuf.hasArray()) {
+      bytes = byteBuf.array();
+      offset = byteBuf.arrayOffset() + byteBuf.readerIndex();
+    } else {
+      bytes = ByteBufUtil.getBytes(byteBuf);
+      offset = 0;
+    }
+    try (JsonParser parser = factory.createParser(bytes, offset, byteBuf.readableBytes())) {
+      if (parser.nextToken() != JsonToken.START_ARRAY
+          || parser.nextToken() != JsonToken.VALUE_NUMBER_INT) {
+        throw new WAMPProtocolException("Invalid message");
+      }
+      final WAMPMessage.Type messageType = WAMPMessage.Type.findByCode(parser.getIntValue());
+      final int rawPayloadIndex = rawPayloadIndex(messageType);
+      final List<Object> fields = new ArrayList<>();
+      JsonToken token;
+      while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+        if (fields.size() == rawPayloadIndex) {
+          fields.add(captureRawPayload(parser, token, bytes));
+          break;
+        }
+        fields.add(JsonMessageDecoder.parseValue(parser, token));
+      }
+      if (parser.nextToken() != null) {
+        throw new WAMPProtocolException("Invalid message");
+      }
+      return new AbstractMap.SimpleImmutableEntry<>(messageType, fields);
+    }
+  }
+
+  // skips over the arguments and keyword arguments up to the end of the message, only keeping
+  // their bytes. the parser reports offsets into the array it reads from
+  private static RawPayload captureRawPayload(JsonParser parser, JsonToken token, byte[] bytes)
+      throws IOException {
+    final int start = (int) parser.getTokenLocation().getByteOffset();
+    int end = start;
+    int elementCount = 0;
+    while (token != JsonToken.END_ARRAY) {
+      final JsonToken expected = elementCount == 0 ? JsonToken.START_ARRAY : JsonToken.START_OBJECT;
+      if (token != expected || elementCount == 2) {
+        throw new WAMPProtocolException("Invalid message");
+      }
+      parser.skipChildren();
+      end = (int) parser.getCurrentLocation().getByteOffset();
+      elementCount++;
+      token = parser.nextToken();
+      if (token == null) {
+        throw new WAMPProtocolException("Invalid message");
+      }
+    }
+    return new CborRawPayload(elementCount, Arrays.copyOfRange(bytes, start, end));
+  }
+
+  /**
+   * Decodes a bare sequence of CBOR values as found in a raw payload.
+   */
+  static List<Object> parseValues(byte[] data, int count) throws IOException {
+    try (JsonParser parser = factory.createParser(data)) {
+      final List<Object> result = new ArrayList<>(count);
+      for (int i = 0; i < count; i++) {
+        result.add(JsonMessageDecoder.parseValue(parser, parser.nextToken()));
+      }
+      return result;
+    }
+  }
+}
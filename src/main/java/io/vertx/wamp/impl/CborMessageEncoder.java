@@ -0,0 +1,190 @@
+package io.vertx.wamp.impl;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.ByteBufOutputStream;
+import io.netty.buffer.UnpooledByteBufAllocator;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.wamp.Uri;
+import io.vertx.wamp.WAMPMessage;
+import io.vertx.wamp.messages.EventMessage;
+import io.vertx.wamp.messages.RawPayload;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Encodes messages as CBOR. The message array header is written by hand, the generator only
+ * produces its elements as a sequence of root values, so that encoded publications and raw
+ * payloads can be appended as is.
+ */
+public class CborMessageEncoder implements BinaryMessageEncoder {
+
+  private static final CBORFactory factory = new CBORFactory();
+  private static final ByteBufAllocator heapAllocator = new UnpooledByteBufAllocator(false);
+
+  @Override
+  public Buffer encode(WAMPMessage message) throws IOException {
+    return Buffer.buffer(encode(message, heapAllocator));
+  }
+
+  @Override
+  public void encode(WAMPMessage message, ByteBuf buffer) throws IOException {
+    final EncodedPublication publication = message instanceof EventMessage ?
+        getEncodedPublication((EventMessage) message) : null;
+    final int start = buffer.writerIndex();
+    try {
+      if (publication != null) {
+        // the publication is shared by all subscribers, so it's only encoded once and
+        // combined with the individually encoded subscription ID
+        writeArrayHeader(buffer, publication.elementCount + 2);
+        try (JsonGenerator generator = createGenerator(buffer)) {
+          generator.writeNumber(message.getType().getMessageCode());
+          generator.writeNumber(((EventMessage) message).getSubscriptionId());
+        }
+        buffer.writeBytes(publication.data);
+      } else {
+        final List<Object> payload = message.getPayload();
+        writeArrayHeader(buffer, countElements(payload) + 1);
+        try (JsonGenerator generator = createGenerator(buffer)) {
+          generator.writeNumber(message.getType().getMessageCode());
+          writeValues(generator, buffer, payload);
+        }
+      }
+    } catch (IOException | RuntimeException e) {
+      buffer.writerIndex(start);
+      throw e;
+    }
+  }
+
+  private EncodedPublication getEncodedPublication(EventMessage event) throws IOException {
+    try {
+      return event.getPublication()
+          .getEncoded(CborMessageEncoder.class, this::encodePublication);
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
+    }
+  }
+
+  private EncodedPublication encodePublication(EventMessage.Publication publication) {
+    final List<Object> payload = publication.getPayload();
+    final ByteBuf buffer = heapAllocator.buffer();
+    try {
+      try (JsonGenerator generator = createGenerator(buffer)) {
+        writeValues(generator, buffer, payload);
+      }
+      final byte[] data = new byte[buffer.readableBytes()];
+      buffer.readBytes(data);
+      return new EncodedPublication(countElements(payload), data);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    } finally {
+      buffer.release();
+    }
+  }
+
+  private static JsonGenerator createGenerator(ByteBuf buffer) throws IOException {
+    return factory.createGenerator((OutputStream) new ByteBufOutputStream(buffer));
+  }
+
+  // a raw payload stands for one or two message elements
+  private static int countElements(List<Object> payload) {
+    int count = 0;
+    for (Object entry : payload) {
+      count += entry instanceof RawPayload ? ((RawPayload) entry).getElementCount() : 1;
+    }
+    return count;
+  }
+
+  // major type 4 with the size in the shortest form that fits
+  private static void writeArrayHeader(ByteBuf buffer, int size) {
+    if (size < 24) {
+      buffer.writeByte(0x80 | size);
+    } else if (size < 0x100) {
+      buffer.writeByte(0x98).writeByte(size);
+    } else if (size < 0x10000) {
+      buffer.writeByte(0x99).writeShort(size);
+    } else {
+      buffer.writeByte(0x9a).writeInt(size);
+    }
+  }
+
+  private static void writeValues(JsonGenerator generator, ByteBuf buffer, List<Object> values)
+      throws IOException {
+    for (Object value : values) {
+      if (value instanceof CborRawPayload) {
+        // received as CBOR, so the encoded elements can be copied through as is
+        generator.flush();
+        buffer.writeBytes(((CborRawPayload) value).data);
+      } else if (value instanceof RawPayload) {
+        for (Object entry : ((RawPayload) value).getDecoded()) {
+          writeValue(generator, entry);
+        }
+      } else {
+        writeValue(generator, value);
+      }
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private static void writeValue(JsonGenerator generator, Object value) throws IOException {
+    if (value instanceof Integer) {
+      generator.writeNumber((Integer) value);
+    } else if (value instanceof Long) {
+      generator.writeNumber((Long) value);
+    } else if (value instanceof List) {
+      final List<Object> list = (List<Object>) value;
+      generator.writeStartArray(list.size());
+      for (Object entry : list) {
+        writeValue(generator, entry);
+      }
+      generator.writeEndArray();
+    } else if (value instanceof Map) {
+      final Map<String, Object> map = (Map<String, Object>) value;
+      generator.writeStartObject(map, map.size());
+      for (Map.Entry<String, Object> entry : map.entrySet()) {
+        generator.writeFieldName(entry.getKey());
+        writeValue(generator, entry.getValue());
+      }
+      generator.writeEndObject();
+    } else if (value instanceof ByteBuffer) {
+      final ByteBuffer buffer = (ByteBuffer) value;
+      generator.writeBinary(buffer.array(), buffer.arrayOffset() + buffer.position(),
+          buffer.remaining());
+    } else if (value instanceof Buffer) {
+      generator.writeBinary(((Buffer) value).getBytes());
+    } else if (value instanceof String || value instanceof Uri) {
+      generator.writeString(value.toString());
+    } else if (value instanceof Double) {
+      generator.writeNumber((Double) value);
+    } else if (value instanceof Float) {
+      generator.writeNumber((Float) value);
+    } else if (value instanceof BigInteger) {
+      generator.writeNumber((BigInteger) value);
+    } else if (value instanceof Byte || value instanceof Short) {
+      generator.writeNumber(((Number) value).intValue());
+    } else if (value instanceof Boolean) {
+      generator.writeBoolean((Boolean) value);
+    } else {
+      // null, and anything else without a CBOR representation
+      generator.writeNull();
+    }
+  }
+
+  private static class EncodedPublication {
+
+    final int elementCount;
+    final byte[] data;
+
+    EncodedPublication(int elementCount, byte[] data) {
+      this.elementCount = elementCount;
+      this.data = data;
+    }
+  }
+}
@@ -1,60 +1,143 @@
 package io.vertx.wamp.impl;
 
-import io.vertx.core.json.Json;
-import io.vertx.core.json.JsonArray;
-import io.vertx.wamp.MessageDecoder;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import io.vertx.wamp.WAMPMessage;
 import io.vertx.wamp.WAMPProtocolException;
+import io.vertx.wamp.messages.RawPayload;
+import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
-public class JsonMessageDecoder implements MessageDecoder<String, JsonArray> {
+/**
+ * Streams over the tokens of a message instead of building a JsonArray tree first. The type code
+ * is read up front and only the remaining fields end up in the list handed to the message
+ * constructors, as plain maps and lists. The arguments of messages which are merely passed on are
+ * kept as JSON text.
+ */
+public class JsonMessageDecoder extends ListMessageDecoder<String> {
 
-  public Map.Entry<WAMPMessage.Type, JsonArray> parseMessage(String message) {
-    Object decoded = Json.decodeValue(message);
-    if (!(decoded instanceof JsonArray) || ((JsonArray) decoded).size() == 0) {
-      throw new WAMPProtocolException("Invalid message");
+  private static final JsonFactory factory = new JsonFactory();
+
+  public Map.Entry<WAMPMessage.Type, List<Object>> parseMessage(String message)
+      throws IOException {
+    try (JsonParser parser = factory.createParser(message)) {
+      if (parser.nextToken() != JsonToken.START_ARRAY
+          || parser.nextToken() != JsonToken.VALUE_NUMBER_INT) {
+        throw new WAMPProtocolException("Invalid message");
+      }
+      final WAMPMessage.Type messageType = WAMPMessage.Type.findByCode(parser.getIntValue());
+      final List<Object> fields = parseFields(parser, message, rawPayloadIndex(messageType));
+      if (parser.nextToken() != null) {
+        throw new WAMPProtocolException("Invalid message");
+      }
+      return new AbstractMap.SimpleImmutableEntry<>(messageType, fields);
     }
-    JsonArray jsonArray = (JsonArray) decoded;
-    WAMPMessage.Type messageType = WAMPMessage.Type.findByCode(getInteger(jsonArray, 0));
-    jsonArray.remove(0);
-    return new AbstractMap.SimpleImmutableEntry<>(messageType, jsonArray);
   }
 
-  @Override
-  public Integer elementCount(JsonArray data) {
-    return data.size();
+  private static List<Object> parseFields(JsonParser parser, String message, int rawPayloadIndex)
+      throws IOException {
+    final List<Object> result = new ArrayList<>();
+    JsonToken token;
+    while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+      if (result.size() == rawPayloadIndex) {
+        result.add(captureRawPayload(parser, token, message));
+        break;
+      }
+      result.add(parseValue(parser, token));
+    }
+    return result;
   }
 
-  @Override
-  public String getString(JsonArray data, int idx) {
-    return data.getString(idx);
+  // skips over the arguments and keyword arguments up to the end of the message, only keeping
+  // their text
+  private static RawPayload captureRawPayload(JsonParser parser, JsonToken token, String message)
+      throws IOException {
+    final int start = (int) parser.getTokenLocation().getCharOffset();
+    int elementCount = 0;
+    while (token != JsonToken.END_ARRAY) {
+      final JsonToken expected = elementCount == 0 ? JsonToken.START_ARRAY : JsonToken.START_OBJECT;
+      if (token != expected || elementCount == 2) {
+        throw new WAMPProtocolException("Invalid message");
+      }
+      parser.skipChildren();
+      elementCount++;
+      token = parser.nextToken();
+      if (token == null) {
+        throw new WAMPProtocolException("Invalid message");
+      }
+    }
+    final int end = (int) parser.getTokenLocation().getCharOffset();
+    return new JsonRawPayload(elementCount, message.substring(start, end).trim());
   }
 
-  @Override
-  public Map<String, Object> getMap(JsonArray data, int idx) {
-    if (data.size() <= idx) {
-      return null;
+  /**
+   * Decodes a bare sequence of JSON values as found in a raw payload.
+   */
+  static List<Object> parseValues(String json) throws IOException {
+    try (JsonParser parser = factory.createParser("[" + json + "]")) {
+      parser.nextToken();
+      return parseArray(parser);
     }
-    return data.getJsonObject(idx).getMap();
   }
 
-  @Override
-  public Integer getInteger(JsonArray data, int idx) {
-    return data.getInteger(idx);
+  static List<Object> parseArray(JsonParser parser) throws IOException {
+    final List<Object> result = new ArrayList<>();
+    JsonToken token;
+    while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+      result.add(parseValue(parser, token));
+    }
+    return result;
   }
 
-  @Override
-  public Long getLong(JsonArray data, int idx) {
-    return data.getLong(idx);
+  private static Map<String, Object> parseObject(JsonParser parser) throws IOException {
+    final Map<String, Object> result = new HashMap<>();
+    String name;
+    while ((name = parser.nextFieldName()) != null) {
+      result.put(name, parseValue(parser, parser.nextToken()));
+    }
+    if (parser.currentToken() != JsonToken.END_OBJECT) {
+      throw new WAMPProtocolException("Invalid message");
+    }
+    return result;
   }
 
-  @Override
-  public List<Object> getList(JsonArray data, int idx) {
-    if (data.size() <= idx) {
-      return null;
+  // shared with the CBOR decoder, which is driven by the same kind of parser
+  static Object parseValue(JsonParser parser, JsonToken token) throws IOException {
+    if (token == null) {
+      throw new WAMPProtocolException("Invalid message");
+    }
+    switch (token) {
+      case START_ARRAY:
+        return parseArray(parser);
+      case START_OBJECT:
+        return parseObject(parser);
+      case VALUE_STRING:
+        return parser.getText();
+      case VALUE_NUMBER_INT:
+        // Integer, Long or BigInteger depending on the magnitude, just like Vert.x' JsonArray
+        return parser.getNumberValue();
+      case VALUE_NUMBER_FLOAT:
+        return parser.getDoubleValue();
+      case VALUE_TRUE:
+        return Boolean.TRUE;
+      case VALUE_FALSE:
+        return Boolean.FALSE;
+      case VALUE_NULL:
+        return null;
+      case VALUE_EMBEDDED_OBJECT:
+        // only binary formats have byte strings
+        if (parser.getEmbeddedObject() instanceof byte[]) {
+          return ByteBuffer.wrap((byte[]) parser.getEmbeddedObject());
+        }
+        throw new WAMPProtocolException("Invalid message");
+      default:
+        throw new WAMPProtocolException("Invalid message");
     }
-    return (List<Object>) data.getJsonArray(idx).getList();
   }
 }
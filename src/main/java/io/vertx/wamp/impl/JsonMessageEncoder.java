@@ -1,18 +1,182 @@
 package io.vertx.wamp.impl;
 
-import io.vertx.core.json.JsonArray;
-import io.vertx.wamp.MessageEncoder;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.ByteBufOutputStream;
+import io.netty.buffer.UnpooledByteBufAllocator;
+import io.vertx.core.json.Json;
+import io.vertx.wamp.PayloadWriter;
+import io.vertx.wamp.Uri;
 import io.vertx.wamp.WAMPMessage;
+import io.vertx.wamp.messages.EventMessage;
+import io.vertx.wamp.messages.RawPayload;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
 
-public class JsonMessageEncoder implements MessageEncoder<String> {
+/**
+ * Encodes messages as JSON, streaming them as UTF-8 straight into the buffer the frame is sent
+ * from instead of building the payload list, a JsonArray and a String first.
+ */
+public class JsonMessageEncoder implements TextMessageEncoder {
+
+  private static final JsonFactory factory = new JsonFactory();
+  private static final ByteBufAllocator heapAllocator = new UnpooledByteBufAllocator(false);
 
   @Override
   public String encode(WAMPMessage message) {
-    JsonArray encoded = new JsonArray();
-    encoded.add(message.getType().getMessageCode());
-    for (Object entry : message.getPayload()) {
-      encoded.add(entry);
+    final ByteBuf buffer;
+    try {
+      buffer = encode(message, heapAllocator);
+    } catch (IOException e) {
+      // a heap buffer doesn't fail to be written to
+      throw new UncheckedIOException(e);
+    }
+    try {
+      return buffer.toString(StandardCharsets.UTF_8);
+    } finally {
+      buffer.release();
+    }
+  }
+
+  @Override
+  public void encode(WAMPMessage message, ByteBuf buffer) throws IOException {
+    final byte[] publication = message instanceof EventMessage ?
+        getEncodedPublication((EventMessage) message) : null;
+    final int start = buffer.writerIndex();
+    try {
+      if (publication != null) {
+        // the publication is shared by all subscribers, only the subscription ID differs
+        buffer.writeByte('[');
+        writeAscii(buffer, message.getType().getMessageCode());
+        buffer.writeByte(',');
+        writeAscii(buffer, ((EventMessage) message).getSubscriptionId());
+        buffer.writeBytes(publication);
+      } else {
+        try (JsonGenerator generator = createGenerator(buffer)) {
+          generator.writeStartArray();
+          generator.writeNumber(message.getType().getMessageCode());
+          message.writePayload(new GeneratorPayloadWriter(generator));
+          generator.writeEndArray();
+        }
+      }
+    } catch (IOException | RuntimeException e) {
+      buffer.writerIndex(start);
+      throw e;
+    }
+  }
+
+  private byte[] getEncodedPublication(EventMessage event) throws IOException {
+    try {
+      return event.getPublication()
+          .getEncoded(JsonMessageEncoder.class, JsonMessageEncoder::encodePublication);
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
+    }
+  }
+
+  // encodes the elements as the tail of an array, including the leading separator
+  private static byte[] encodePublication(EventMessage.Publication publication) {
+    final ByteBuf buffer = heapAllocator.buffer();
+    try {
+      try (JsonGenerator generator = createGenerator(buffer)) {
+        generator.writeStartArray();
+        publication.writePayload(new GeneratorPayloadWriter(generator));
+        generator.writeEndArray();
+      }
+      final byte[] data = new byte[buffer.readableBytes()];
+      buffer.readBytes(data);
+      data[0] = ',';
+      return data;
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    } finally {
+      buffer.release();
+    }
+  }
+
+  private static JsonGenerator createGenerator(ByteBuf buffer) throws IOException {
+    return factory.createGenerator((OutputStream) new ByteBufOutputStream(buffer));
+  }
+
+  private static void writeAscii(ByteBuf buffer, long value) {
+    buffer.writeCharSequence(Long.toString(value), StandardCharsets.US_ASCII);
+  }
+
+  @SuppressWarnings("unchecked")
+  private static void writeValue(JsonGenerator generator, Object value) throws IOException {
+    if (value == null) {
+      generator.writeNull();
+    } else if (value instanceof String || value instanceof Uri) {
+      // URIs are plain strings on the wire
+      generator.writeString(value.toString());
+    } else if (value instanceof Long) {
+      generator.writeNumber((Long) value);
+    } else if (value instanceof Integer) {
+      generator.writeNumber((Integer) value);
+    } else if (value instanceof Map) {
+      generator.writeStartObject();
+      for (Map.Entry<String, Object> entry : ((Map<String, Object>) value).entrySet()) {
+        generator.writeFieldName(entry.getKey());
+        writeValue(generator, entry.getValue());
+      }
+      generator.writeEndObject();
+    } else if (value instanceof List) {
+      generator.writeStartArray();
+      for (Object entry : (List<Object>) value) {
+        writeValue(generator, entry);
+      }
+      generator.writeEndArray();
+    } else if (value instanceof Boolean) {
+      generator.writeBoolean((Boolean) value);
+    } else if (value instanceof Double) {
+      generator.writeNumber((Double) value);
+    } else if (value instanceof Float) {
+      generator.writeNumber((Float) value);
+    } else if (value instanceof BigInteger) {
+      generator.writeNumber((BigInteger) value);
+    } else if (value instanceof BigDecimal) {
+      generator.writeNumber((BigDecimal) value);
+    } else if (value instanceof Byte || value instanceof Short) {
+      generator.writeNumber(((Number) value).intValue());
+    } else {
+      // JsonObject, JsonArray, binary data etc. are encoded the way vert.x always encoded them
+      generator.writeRawValue(Json.encode(value));
+    }
+  }
+
+  private static class GeneratorPayloadWriter implements PayloadWriter {
+
+    private final JsonGenerator generator;
+
+    GeneratorPayloadWriter(JsonGenerator generator) {
+      this.generator = generator;
+    }
+
+    @Override
+    public void writeLong(long value) throws IOException {
+      generator.writeNumber(value);
+    }
+
+    @Override
+    public void writeValue(Object value) throws IOException {
+      if (value instanceof JsonRawPayload) {
+        // received as JSON, so the elements can be copied through as is
+        generator.writeRawValue(((JsonRawPayload) value).json);
+      } else if (value instanceof RawPayload) {
+        for (Object entry : ((RawPayload) value).getDecoded()) {
+          JsonMessageEncoder.writeValue(generator, entry);
+        }
+      } else {
+        JsonMessageEncoder.writeValue(generator, value);
+      }
     }
-    return encoded.encode();
   }
 }
@@ -0,0 +1,29 @@
+package io.vertx.wamp.impl;
+
+import io.vertx.wamp.messages.RawPayload;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+
+/**
+ * Arguments as received from a JSON peer: the comma separated JSON text of the elements.
+ */
+final class JsonRawPayload extends RawPayload {
+
+  final String json;
+
+  JsonRawPayload(int elementCount, String json) {
+    super(elementCount);
+    this.json = json;
+  }
+
+  @Override
+  protected List<Object> decode() {
+    try {
+      return JsonMessageDecoder.parseValues(json);
+    } catch (IOException e) {
+      // the text has already been validated while receiving it
+      throw new UncheckedIOException(e);
+    }
+  }
+}
@@ -0,0 +1,106 @@
+package io.vertx.wamp.impl;
+
+import io.vertx.wamp.MessageDecoder;
+import io.vertx.wamp.WAMPMessage;
+import io.vertx.wamp.messages.RawPayload;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Base for decoders which turn the fields of a message (everything after the type code) into a
+ * plain list of java values: maps, lists, strings, numbers and booleans.
+ */
+abstract class ListMessageDecoder<I> implements MessageDecoder<I, List<Object>> {
+
+  /**
+   * @return the index (not counting the type code) of the arguments of messages whose payload is
+   * passed through without decoding, -1 for all other messages
+   */
+  static int rawPayloadIndex(WAMPMessage.Type type) {
+    switch (type) {
+      case PUBLISH:
+      case CALL:
+        return 3;
+      case YIELD:
+        return 2;
+      default:
+        return -1;
+    }
+  }
+
+  @Override
+  public Integer elementCount(List<Object> data) {
+    return data.size();
+  }
+
+  @Override
+  public String getString(List<Object> data, int idx) {
+    if (data.size() <= idx || data.get(idx) == null) {
+      return null;
+    }
+    return data.get(idx).toString();
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public Map<String, Object> getMap(List<Object> data, int idx) {
+    if (data.size() <= idx) {
+      return null;
+    }
+    Object item = data.get(idx);
+    if (item instanceof Map) {
+      return (Map<String, Object>) item;
+    }
+    return Collections.emptyMap();
+  }
+
+  @Override
+  public Integer getInteger(List<Object> data, int idx) {
+    if (data.size() <= idx) {
+      return null;
+    }
+    Object item = data.get(idx);
+    if (item instanceof Integer) {
+      return (Integer) item;
+    } else if (item instanceof Long) {
+      return ((Long) item).intValue();
+    }
+    return null;
+  }
+
+  @Override
+  public Long getLong(List<Object> data, int idx) {
+    if (data.size() <= idx) {
+      return null;
+    }
+    Object item = data.get(idx);
+    if (item instanceof Integer) {
+      return ((Integer) item).longValue();
+    } else if (item instanceof Long) {
+      return (Long) item;
+    }
+    return null;
+  }
+
+  @Override
+  public RawPayload getRawPayload(List<Object> data, int idx) {
+    if (data.size() <= idx || !(data.get(idx) instanceof RawPayload)) {
+      return null;
+    }
+    return (RawPayload) data.get(idx);
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public List<Object> getList(List<Object> data, int idx) {
+    if (data.size() <= idx) {
+      return null;
+    }
+    Object item = data.get(idx);
+    if (item instanceof List) {
+      return (List<Object>) item;
+    }
+    return Collections.emptyList();
+  }
+}
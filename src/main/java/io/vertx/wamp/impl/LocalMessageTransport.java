@@ -0,0 +1,121 @@
+package io.vertx.wamp.impl;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Context;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.Promise;
+import io.vertx.wamp.MessageTransport;
+import io.vertx.wamp.Uri;
+import io.vertx.wamp.WAMPMessage;
+import java.io.IOException;
+import java.util.function.Consumer;
+
+/**
+ * One end of an in-process connection between the router and a peer running in the same JVM.
+ * Messages are handed to the other end as they are, without being encoded. They are always
+ * delivered through the context's task queue, so a handler sending a message never re-enters the
+ * other end and the order of messages and closing is kept.
+ */
+public class LocalMessageTransport implements MessageTransport {
+
+  private final Context context;
+  private LocalMessageTransport peer;
+
+  private volatile Consumer<WAMPMessage> messageConsumer = null;
+  private Handler<Void> closeHandler = null;
+  // only changed on the context
+  private volatile boolean closed;
+
+  private LocalMessageTransport(Context context) {
+    this.context = context;
+  }
+
+  /**
+   * Creates a connection whose ends both receive their messages on the given context.
+   *
+   * @param context the context of the session, on which the peer receives messages as well
+   * @return the router's end, the peer's end is available from {@link #getPeer()}
+   */
+  public static LocalMessageTransport connect(Context context) {
+    final LocalMessageTransport router = new LocalMessageTransport(context);
+    final LocalMessageTransport peer = new LocalMessageTransport(context);
+    router.peer = peer;
+    peer.peer = router;
+    return router;
+  }
+
+  /**
+   * @return the other end of the connection
+   */
+  public LocalMessageTransport getPeer() {
+    return peer;
+  }
+
+  /**
+   * @param handler called on the context once either end has been closed
+   */
+  public void closeHandler(Handler<Void> handler) {
+    this.closeHandler = handler;
+  }
+
+  @Override
+  public void sendMessage(WAMPMessage message, Handler<AsyncResult<Void>> completionHandler)
+      throws IOException {
+    if (closed) {
+      throw new IOException("Transport is closed");
+    }
+    final LocalMessageTransport receiver = peer;
+    receiver.context.runOnContext(v -> {
+      // the transport may have been closed while the message was queued
+      if (receiver.closed) {
+        if (completionHandler != null) {
+          completionHandler.handle(Future.failedFuture(new IOException("Transport is closed")));
+        }
+        return;
+      }
+      if (receiver.messageConsumer != null) {
+        receiver.messageConsumer.accept(message);
+      }
+      if (completionHandler != null) {
+        completionHandler.handle(Future.succeededFuture());
+      }
+    });
+  }
+
+  @Override
+  public void setReceiveHandler(Consumer<WAMPMessage> consumer) {
+    if (consumer == null) {
+      throw new IllegalArgumentException("Invalid receive handler: null");
+    }
+    this.messageConsumer = consumer;
+  }
+
+  @Override
+  public void setErrorHandler(Consumer<Uri> consumer) {
+    // messages aren't decoded, so there are no protocol errors to report to it
+    if (consumer == null) {
+      throw new IllegalArgumentException("Invalid error handler: null");
+    }
+  }
+
+  @Override
+  public void close(Promise<Void> promise) {
+    // queued like the messages, so that those sent before closing still arrive
+    context.runOnContext(v -> {
+      if (!closed) {
+        closed = true;
+        peer.closed = true;
+        if (closeHandler != null) {
+          closeHandler.handle(null);
+        }
+        if (peer.closeHandler != null) {
+          peer.closeHandler.handle(null);
+        }
+      }
+      if (promise != null) {
+        promise.complete();
+      }
+    });
+  }
+}
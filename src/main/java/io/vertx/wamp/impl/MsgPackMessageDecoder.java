@@ -1,129 +1,168 @@
 package io.vertx.wamp.impl;
 
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
 import io.vertx.core.buffer.Buffer;
-import io.vertx.wamp.MessageDecoder;
 import io.vertx.wamp.WAMPMessage;
+import io.vertx.wamp.messages.RawPayload;
 import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
 import java.util.AbstractMap;
 import java.util.ArrayList;
-import java.util.Collections;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import org.msgpack.core.MessageFormat;
 import org.msgpack.core.MessagePack;
+import org.msgpack.core.MessagePackException;
 import org.msgpack.core.MessageUnpacker;
-import org.msgpack.value.ArrayValue;
-import org.msgpack.value.IntegerValue;
-import org.msgpack.value.MapValue;
-import org.msgpack.value.Value;
+import org.msgpack.value.ValueType;
 
-public class MsgPackMessageDecoder implements MessageDecoder<Buffer, List<Object>> {
+/**
+ * Unpacks messages straight from the bytes of the received buffer and turns the fields into java
+ * values in a single pass, without an intermediate msgpack value tree. The arguments of messages
+ * which are merely passed on are kept packed.
+ */
+public class MsgPackMessageDecoder extends ListMessageDecoder<Buffer> {
 
   @Override
   public Map.Entry<WAMPMessage.Type, List<Object>> parseMessage(Buffer data) throws IOException {
-    List<Value> parsed = new ArrayList<>();
-    try (MessageUnpacker unpacker = MessagePack.newDefaultUnpacker(data.getBytes())) {
-      while (unpacker.hasNext()) {
-        parsed.add(unpacker.unpackValue());
-      }
+    // heap buffers are read in place, direct ones copied: msgpack only reads direct memory
+    // through reflection the JDK no longer allows
+    final ByteBuf byteBuf = data.getByteBuf();
+    final byte[] bytes;
+    final int offset;
+    if (byteBuf.hasArray()) {
+      bytes = byteBuf.array();
+      offset = byteBuf.arrayOffset() + byteBuf.readerIndex();
+    } else {
+      bytes = ByteBufUtil.getBytes(byteBuf);
+      offset = 0;
     }
-    if (parsed.size() != 1) {
-      throw new IOException("Invalid data");
+    try (MessageUnpacker unpacker = MessagePack.newDefaultUnpacker(bytes, offset,
+        byteBuf.readableBytes())) {
+      if (!unpacker.hasNext() || unpacker.getNextFormat().getValueType() != ValueType.ARRAY) {
+        throw new IOException("Invalid data");
+      }
+      final int elementCount = unpacker.unpackArrayHeader();
+      if (elementCount == 0
+          || unpacker.getNextFormat().getValueType() != ValueType.INTEGER) {
+        throw new IOException("Invalid data");
+      }
+      final WAMPMessage.Type messageType = WAMPMessage.Type.findByCode(unpacker.unpackInt());
+      final int rawPayloadIndex = rawPayloadIndex(messageType);
+      final List<Object> messageData = new ArrayList<>(elementCount - 1);
+      for (int i = 1; i < elementCount; i++) {
+        if (messageData.size() == rawPayloadIndex) {
+          messageData.add(captureRawPayload(unpacker, bytes, offset, elementCount - i));
+          break;
+        }
+        messageData.add(unpackAny(unpacker));
+      }
+      if (unpacker.hasNext()) {
+        throw new IOException("Invalid data");
+      }
+      return new AbstractMap.SimpleImmutableEntry<>(messageType, messageData);
+    } catch (MessagePackException e) {
+      // truncated data, type mismatches etc.
+      throw new IOException("Invalid data", e);
     }
-    List<Object> messageData = decodeArray(parsed.get(0).asArrayValue());
-    WAMPMessage.Type messageType = WAMPMessage.Type.findByCode(getInteger(messageData, 0));
-    messageData.remove(0);
-    return new AbstractMap.SimpleImmutableEntry<>(messageType, messageData);
   }
 
-  @Override
-  public Integer elementCount(List<Object> data) {
-    return data.size();
-  }
-
-  @Override
-  public String getString(List<Object> data, int idx) {
-    return data.get(idx).toString();
-  }
-
-  @Override
-  public Map<String, Object> getMap(List<Object> data, int idx) {
-    Object item = data.get(idx);
-    if (item instanceof Map) {
-      return (Map<String, Object>) item;
+  // skips over the arguments and keyword arguments, only keeping their bytes
+  private static RawPayload captureRawPayload(MessageUnpacker unpacker, byte[] bytes, int offset,
+      int elementCount) throws IOException {
+    if (elementCount > 2) {
+      throw new IOException("Invalid data");
     }
-    return Collections.emptyMap();
-  }
-
-  @Override
-  public Integer getInteger(List<Object> data, int idx) {
-    Object item = data.get(idx);
-    if (item instanceof Integer) {
-      return (Integer) item;
-    } else if (item instanceof Long) {
-      return ((Long) item).intValue();
+    final int start = (int) unpacker.getTotalReadBytes();
+    for (int i = 0; i < elementCount; i++) {
+      final ValueType expected = i == 0 ? ValueType.ARRAY : ValueType.MAP;
+      if (unpacker.getNextFormat().getValueType() != expected) {
+        throw new IOException("Invalid data");
+      }
+      unpacker.skipValue();
     }
-    return null;
+    final byte[] data = Arrays.copyOfRange(bytes, offset + start,
+        offset + (int) unpacker.getTotalReadBytes());
+    return new MsgPackRawPayload(elementCount, data);
   }
 
-  @Override
-  public Long getLong(List<Object> data, int idx) {
-    Object item = data.get(idx);
-    if (item instanceof Integer) {
-      return ((Integer) item).longValue();
-    } else if (item instanceof Long) {
-      return (Long) item;
+  /**
+   * Unpacks a bare sequence of values as found in a raw payload.
+   */
+  static List<Object> unpackValues(byte[] data, int count) throws IOException {
+    try (MessageUnpacker unpacker = MessagePack.newDefaultUnpacker(data)) {
+      final List<Object> res = new ArrayList<>(count);
+      for (int i = 0; i < count; i++) {
+        res.add(unpackAny(unpacker));
+      }
+      return res;
     }
-    return null;
   }
 
-  @Override
-  public List<Object> getList(List<Object> data, int idx) {
-    Object item = data.get(idx);
-    if (item instanceof List) {
-      return (List<Object>) item;
+  private static List<Object> unpackArray(MessageUnpacker unpacker) throws IOException {
+    final int size = unpacker.unpackArrayHeader();
+    final List<Object> res = new ArrayList<>(size);
+    for (int i = 0; i < size; i++) {
+      res.add(unpackAny(unpacker));
     }
-    return Collections.emptyList();
-  }
-
-  private List<Object> decodeArray(ArrayValue value) {
-    List<Object> res = new ArrayList<>();
-    value.iterator().forEachRemaining(e -> res.add(decodeAny(e)));
     return res;
   }
 
-  private Map<String, Object> decodeMap(MapValue value) {
-    Map<String, Object> res = new HashMap<>();
-    value.entrySet().forEach(entry -> res.put(entry.getKey().asStringValue().asString(),
-        decodeAny(entry.getValue())));
+  private static Map<String, Object> unpackMap(MessageUnpacker unpacker) throws IOException {
+    final int size = unpacker.unpackMapHeader();
+    final Map<String, Object> res = new HashMap<>();
+    for (int i = 0; i < size; i++) {
+      res.put(unpacker.unpackString(), unpackAny(unpacker));
+    }
     return res;
   }
 
-  private Object decodeAny(Value value) {
-    switch (value.getValueType()) {
+  private static Object unpackAny(MessageUnpacker unpacker) throws IOException {
+    final MessageFormat format = unpacker.getNextFormat();
+    switch (format.getValueType()) {
+      case NIL:
+        unpacker.unpackNil();
+        return null;
       case BOOLEAN:
-        return value.asBooleanValue().getBoolean();
+        return unpacker.unpackBoolean();
       case INTEGER:
-        IntegerValue intVal = value.asIntegerValue();
-        if (intVal.isInIntRange()) {
-          return intVal.asInt();
-        } else if (intVal.isInLongRange()) {
-          return intVal.asLong();
-        } else {
-          return intVal.asBigInteger();
-        }
+        return unpackInteger(unpacker, format);
       case FLOAT:
-        return value.asFloatValue().toDouble();
+        return unpacker.unpackDouble();
       case STRING:
-        return value.asStringValue().asString();
+        return unpacker.unpackString();
       case BINARY:
-        return value.asBinaryValue().asByteBuffer();
+        return ByteBuffer.wrap(unpacker.readPayload(unpacker.unpackBinaryHeader()));
       case ARRAY:
-        return decodeArray(value.asArrayValue());
+        return unpackArray(unpacker);
       case MAP:
-        return decodeMap(value.asMapValue());
+        return unpackMap(unpacker);
       default:
+        unpacker.skipValue();
         return null;
     }
   }
+
+  // use the narrowest type the value fits into
+  private static Object unpackInteger(MessageUnpacker unpacker, MessageFormat format) throws IOException {
+    if (format == MessageFormat.UINT64) {
+      final BigInteger value = unpacker.unpackBigInteger();
+      if (value.bitLength() >= Long.SIZE) {
+        return value;
+      }
+      return narrow(value.longValue());
+    }
+    return narrow(unpacker.unpackLong());
+  }
+
+  private static Object narrow(long value) {
+    if (value >= Integer.MIN_VALUE && value <= Integer.MAX_VALUE) {
+      return (int) value;
+    }
+    return value;
+  }
 }
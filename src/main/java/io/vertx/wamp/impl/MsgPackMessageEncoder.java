@@ -1,32 +1,117 @@
 package io.vertx.wamp.impl;
 
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.UnpooledByteBufAllocator;
+import io.netty.util.concurrent.FastThreadLocal;
 import io.vertx.core.buffer.Buffer;
-import io.vertx.wamp.MessageEncoder;
+import io.vertx.wamp.Uri;
 import io.vertx.wamp.WAMPMessage;
+import io.vertx.wamp.messages.EventMessage;
+import io.vertx.wamp.messages.RawPayload;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.nio.ByteBuffer;
 import java.util.List;
 import java.util.Map;
 import org.msgpack.core.MessageBufferPacker;
 import org.msgpack.core.MessagePack;
+import org.msgpack.core.MessagePacker;
 
-public class MsgPackMessageEncoder implements MessageEncoder<Buffer> {
+public class MsgPackMessageEncoder implements BinaryMessageEncoder {
+
+  // packers are reused per thread (i.e. per event loop) and write into whatever buffer is
+  // currently being encoded
+  private static final FastThreadLocal<ReusablePacker> packers = new FastThreadLocal<>() {
+    @Override
+    protected ReusablePacker initialValue() {
+      return new ReusablePacker();
+    }
+  };
+
+  private static final ByteBufAllocator heapAllocator = new UnpooledByteBufAllocator(false);
 
   @Override
   public Buffer encode(WAMPMessage message) throws IOException {
+    return Buffer.buffer(encode(message, heapAllocator));
+  }
+
+  @Override
+  public void encode(WAMPMessage message, ByteBuf buffer) throws IOException {
+    final EncodedPublication publication = message instanceof EventMessage ?
+        getEncodedPublication((EventMessage) message) : null;
+    final ReusablePacker reusablePacker = packers.get();
+    final int start = buffer.writerIndex();
+    reusablePacker.output.target = buffer;
+    try {
+      final MessagePacker packer = reusablePacker.packer;
+      if (publication != null) {
+        // the publication is shared by all subscribers, so it's only encoded once and
+        // combined with the individually encoded subscription ID
+        packer.packArrayHeader(publication.elementCount + 2);
+        packer.packInt(message.getType().getMessageCode());
+        packer.packLong(((EventMessage) message).getSubscriptionId());
+        packer.flush();
+        buffer.writeBytes(publication.data);
+      } else {
+        final List<Object> payload = message.getPayload();
+        packer.packArrayHeader(countElements(payload) + 1);
+        packer.packInt(message.getType().getMessageCode());
+        for (Object entry : payload) {
+          packValue(packer, entry);
+        }
+        packer.flush();
+      }
+    } catch (IOException | RuntimeException e) {
+      // don't let a partially packed message leak into the next one
+      reusablePacker.packer.clear();
+      buffer.writerIndex(start);
+      throw e;
+    } finally {
+      reusablePacker.output.target = null;
+    }
+  }
+
+  private EncodedPublication getEncodedPublication(EventMessage event) throws IOException {
+    try {
+      return event.getPublication()
+          .getEncoded(MsgPackMessageEncoder.class, this::encodePublication);
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
+    }
+  }
+
+  private EncodedPublication encodePublication(EventMessage.Publication publication) {
     try (MessageBufferPacker packer = MessagePack.newDefaultBufferPacker()) {
-      List<Object> payload = message.getPayload();
-      packer.packArrayHeader(payload.size() + 1);
-      packer.packInt(message.getType().getMessageCode());
-      for (Object entry : message.getPayload()) {
+      final List<Object> payload = publication.getPayload();
+      for (Object entry : payload) {
         packValue(packer, entry);
       }
-      return Buffer.buffer(packer.toByteArray());
+      return new EncodedPublication(countElements(payload), packer.toByteArray());
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
     }
   }
 
-  private void packValue(MessageBufferPacker packer, Object value) throws IOException {
-    if (value instanceof Integer) {
+  // a raw payload stands for one or two message elements
+  private static int countElements(List<Object> payload) {
+    int count = 0;
+    for (Object entry : payload) {
+      count += entry instanceof RawPayload ? ((RawPayload) entry).getElementCount() : 1;
+    }
+    return count;
+  }
+
+  private void packValue(MessagePacker packer, Object value) throws IOException {
+    if (value instanceof MsgPackRawPayload) {
+      // received as MsgPack, so the packed elements can be copied through as is
+      packer.writePayload(((MsgPackRawPayload) value).data);
+    } else if (value instanceof RawPayload) {
+      for (Object entry : ((RawPayload) value).getDecoded()) {
+        packValue(packer, entry);
+      }
+    } else if (value instanceof Integer) {
       packer.packInt((Integer) value);
     } else if (value instanceof Long) {
       packer.packLong((Long) value);
@@ -42,7 +127,7 @@ public class MsgPackMessageEncoder implements MessageEncoder<Buffer> {
       Buffer buffer = (Buffer) value;
       packer.packBinaryHeader(buffer.length());
       packer.writePayload(buffer.getBytes());
-    } else if (value instanceof String) {
+    } else if (value instanceof String || value instanceof Uri) {
       packer.packString(value.toString());
     } else if (value instanceof Double) {
       packer.packDouble((Double) value);
@@ -59,7 +144,7 @@ public class MsgPackMessageEncoder implements MessageEncoder<Buffer> {
     }
   }
 
-  private void packMap(MessageBufferPacker packer, Map<String, Object> value) throws IOException {
+  private void packMap(MessagePacker packer, Map<String, Object> value) throws IOException {
     Map<String, Object> map = value;
     packer.packMapHeader(map.size());
     for (Map.Entry<String, Object> entry : map.entrySet()) {
@@ -68,11 +153,44 @@ public class MsgPackMessageEncoder implements MessageEncoder<Buffer> {
     }
   }
 
-  private void packList(MessageBufferPacker packer, List<Object> value) throws IOException {
+  private void packList(MessagePacker packer, List<Object> value) throws IOException {
     List<Object> list = value;
     packer.packArrayHeader(list.size());
     for (Object entry : list) {
       packValue(packer, entry);
     }
   }
+
+  private static class ReusablePacker {
+
+    final ByteBufOutputStream output = new ByteBufOutputStream();
+    final MessagePacker packer = MessagePack.newDefaultPacker(output);
+  }
+
+  // unlike Netty's ByteBufOutputStream this one can be pointed at a different buffer every time
+  private static class ByteBufOutputStream extends OutputStream {
+
+    ByteBuf target;
+
+    @Override
+    public void write(int b) {
+      target.writeByte(b);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) {
+      target.writeBytes(b, off, len);
+    }
+  }
+
+  private static class EncodedPublication {
+
+    final int elementCount;
+    final byte[] data;
+
+    EncodedPublication(int elementCount, byte[] data) {
+      this.elementCount = elementCount;
+      this.data = data;
+    }
+  }
 }
@@ -0,0 +1,29 @@
+package io.vertx.wamp.impl;
+
+import io.vertx.wamp.messages.RawPayload;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+
+/**
+ * Arguments as received from a MsgPack peer: the packed elements, without an array header.
+ */
+final class MsgPackRawPayload extends RawPayload {
+
+  final byte[] data;
+
+  MsgPackRawPayload(int elementCount, byte[] data) {
+    super(elementCount);
+    this.data = data;
+  }
+
+  @Override
+  protected List<Object> decode() {
+    try {
+      return MsgPackMessageDecoder.unpackValues(data, getElementCount());
+    } catch (IOException e) {
+      // the data has already been validated while receiving it
+      throw new UncheckedIOException(e);
+    }
+  }
+}
@@ -0,0 +1,136 @@
+package io.vertx.wamp.impl;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.wamp.SlowConsumerPolicy;
+import io.vertx.wamp.WAMPMessage;
+import io.vertx.wamp.messages.EventMessage;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Messages waiting for the write queue of a transport to drain, bounded according to a
+ * {@link SlowConsumerPolicy}. Only touched on the transport's context.
+ */
+final class OutboundQueue {
+
+  private final int maxQueuedMessages;
+  private final SlowConsumerPolicy policy;
+  private final LongAdder droppedEvents;
+  private final ArrayDeque<Entry> entries = new ArrayDeque<>();
+  // the queued event of each subscription, when conflating
+  private final Map<Long, Entry> queuedEvents;
+
+  OutboundQueue(int maxQueuedMessages, SlowConsumerPolicy policy, LongAdder droppedEvents) {
+    this.maxQueuedMessages = maxQueuedMessages;
+    this.policy = policy;
+    this.droppedEvents = droppedEvents;
+    this.queuedEvents = policy == SlowConsumerPolicy.CONFLATE ? new HashMap<>() : null;
+  }
+
+  boolean isEmpty() {
+    return entries.isEmpty();
+  }
+
+  /**
+   * Queues the message, dropping events as the policy says.
+   *
+   * @return false if the policy says to disconnect the session instead, in which case the
+   * message and all queued ones have been dropped
+   */
+  boolean offer(WAMPMessage message, Handler<AsyncResult<Void>> completionHandler) {
+    final Long subscriptionId = message instanceof EventMessage ?
+        ((EventMessage) message).getSubscriptionId() : null;
+    if (subscriptionId != null && queuedEvents != null) {
+      final Entry queued = queuedEvents.get(subscriptionId);
+      if (queued != null) {
+        drop(queued.completionHandler);
+        queued.message = message;
+        queued.completionHandler = completionHandler;
+        return true;
+      }
+    }
+    if (subscriptionId != null && entries.size() >= maxQueuedMessages) {
+      if (policy == SlowConsumerPolicy.DISCONNECT) {
+        drop(completionHandler);
+        for (Entry entry = poll(); entry != null; entry = poll()) {
+          if (entry.message instanceof EventMessage) {
+            drop(entry.completionHandler);
+          } else if (entry.completionHandler != null) {
+            entry.completionHandler.handle(Future.failedFuture(
+                new IOException("Slow consumer disconnected")));
+          }
+        }
+        return false;
+      }
+      if (policy != SlowConsumerPolicy.DROP_OLDEST || !dropOldestEvent()) {
+        drop(completionHandler);
+        return true;
+      }
+    }
+    final Entry entry = new Entry(message, completionHandler);
+    entries.add(entry);
+    if (subscriptionId != null && queuedEvents != null) {
+      queuedEvents.put(subscriptionId, entry);
+    }
+    return true;
+  }
+
+  /**
+   * @return the message sent longest ago, null if there is none
+   */
+  Entry poll() {
+    final Entry entry = entries.poll();
+    if (entry != null && queuedEvents != null && entry.message instanceof EventMessage) {
+      queuedEvents.remove(((EventMessage) entry.message).getSubscriptionId(), entry);
+    }
+    return entry;
+  }
+
+  /**
+   * Fails all queued messages, e.g. as the transport has been closed.
+   */
+  void clear() {
+    for (Entry entry = poll(); entry != null; entry = poll()) {
+      if (entry.completionHandler != null) {
+        entry.completionHandler.handle(Future.failedFuture(new IOException("Transport is closed")));
+      }
+    }
+  }
+
+  private boolean dropOldestEvent() {
+    final Iterator<Entry> iterator = entries.iterator();
+    while (iterator.hasNext()) {
+      final Entry entry = iterator.next();
+      if (entry.message instanceof EventMessage) {
+        iterator.remove();
+        drop(entry.completionHandler);
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private void drop(Handler<AsyncResult<Void>> completionHandler) {
+    droppedEvents.increment();
+    if (completionHandler != null) {
+      completionHandler.handle(Future.failedFuture(new IOException("Dropped for a slow consumer")));
+    }
+  }
+
+  static final class Entry {
+
+    WAMPMessage message;
+    Handler<AsyncResult<Void>> completionHandler;
+
+    Entry(WAMPMessage message, Handler<AsyncResult<Void>> completionHandler) {
+      this.message = message;
+      this.completionHandler = completionHandler;
+    }
+  }
+}
@@ -0,0 +1,259 @@
+package io.vertx.wamp.impl;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.UnpooledByteBufAllocator;
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Handler;
+import io.vertx.core.Promise;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.net.NetSocket;
+import io.vertx.core.net.impl.NetSocketInternal;
+import io.vertx.core.parsetools.RecordParser;
+import io.vertx.wamp.MessageFactory;
+import io.vertx.wamp.MessageTransport;
+import io.vertx.wamp.Uri;
+import io.vertx.wamp.WAMPMessage;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.function.Consumer;
+
+/**
+ * WAMP RawSocket transport: after a 4 byte handshake negotiating the serializer and the maximum
+ * message length of each side, every message is prefixed by a 4 byte header holding the frame type
+ * and the 24 bit length of the payload. Pings are answered by the transport itself.
+ */
+public class RawSocketMessageTransport implements MessageTransport {
+
+  /**
+   * The largest maximum message length a handshake can announce
+   */
+  public static final int MAX_MESSAGE_LENGTH = 1 << 24;
+
+  private static final int MAGIC = 0x7f;
+  private static final int FRAME_MESSAGE = 0;
+  private static final int FRAME_PING = 1;
+  private static final int FRAME_PONG = 2;
+  // handshake error codes
+  private static final int ERROR_SERIALIZER_UNSUPPORTED = 1;
+  private static final int ERROR_RESERVED_BITS = 3;
+  private static final ByteBufAllocator heapAllocator = new UnpooledByteBufAllocator(false);
+
+  private final NetSocket socket;
+  private final RecordParser parser;
+  // the maximum length this side accepts as sent in the handshake, 2^(9 + exponent) bytes
+  private final int maxLengthExponent;
+  private final int maxLength;
+
+  private Consumer<WAMPMessage> messageConsumer = null;
+  private Consumer<Uri> errorConsumer = null;
+  private Handler<Void> closeHandler = null;
+
+  // both are set by the handshake, messages are only sent once it has been received
+  private volatile Serializer serializer;
+  private volatile int peerMaxLength;
+  private volatile boolean closed;
+  // type of the frame whose payload is parsed next, -1 while parsing a header
+  private int frameType = -1;
+
+  /**
+   * @param socket           the connection, which is expected to start with the handshake
+   * @param maxMessageLength the length of the longest message accepted from the peer, rounded
+   *                         down to a power of two between 512 and 2^24
+   */
+  public RawSocketMessageTransport(NetSocket socket, int maxMessageLength) {
+    this.socket = socket;
+    this.maxLengthExponent = Math.max(0,
+        Math.min(15, 31 - Integer.numberOfLeadingZeros(maxMessageLength) - 9));
+    this.maxLength = lengthOf(maxLengthExponent);
+    this.parser = RecordParser.newFixed(4, this::onRecordReceived);
+    socket.handler(parser);
+    socket.closeHandler(v -> {
+      closed = true;
+      if (closeHandler != null) {
+        closeHandler.handle(null);
+      }
+    });
+  }
+
+  private static int lengthOf(int exponent) {
+    // the 24 bit length of a frame falls one byte short of the largest maximum
+    return Math.min(1 << (9 + exponent), 0xffffff);
+  }
+
+  /**
+   * @param handler called once the connection has been closed by either side
+   */
+  public void closeHandler(Handler<Void> handler) {
+    this.closeHandler = handler;
+  }
+
+  private void onRecordReceived(Buffer record) {
+    if (serializer == null) {
+      onHandshakeReceived(record);
+    } else if (frameType < 0) {
+      onHeaderReceived(record);
+    } else {
+      final int type = frameType;
+      frameType = -1;
+      parser.fixedSizeMode(4);
+      onFrameReceived(type, record);
+    }
+  }
+
+  private void onHandshakeReceived(Buffer handshake) {
+    if (handshake.getUnsignedByte(0) != MAGIC) {
+      // not a RawSocket peer at all
+      socket.close();
+      return;
+    }
+    if (handshake.getUnsignedShort(2) != 0) {
+      rejectHandshake(ERROR_RESERVED_BITS);
+      return;
+    }
+    final int serializerId = handshake.getUnsignedByte(1) & 0x0f;
+    final Serializer requested = Serializer.forRawSocket(serializerId);
+    if (requested == null) {
+      rejectHandshake(ERROR_SERIALIZER_UNSUPPORTED);
+      return;
+    }
+    peerMaxLength = lengthOf(handshake.getUnsignedByte(1) >> 4);
+    serializer = requested;
+    socket.write(Buffer.buffer(4)
+        .appendUnsignedByte((short) MAGIC)
+        .appendUnsignedByte((short) (maxLengthExponent << 4 | serializerId))
+        .appendUnsignedShort(0));
+  }
+
+  private void rejectHandshake(int error) {
+    socket.write(Buffer.buffer(4)
+        .appendUnsignedByte((short) MAGIC)
+        .appendUnsignedByte((short) (error << 4))
+        .appendUnsignedShort(0));
+    socket.close();
+  }
+
+  private void onHeaderReceived(Buffer header) {
+    final int type = header.getUnsignedByte(0);
+    final int length = header.getUnsignedMedium(1);
+    if (type > FRAME_PONG || length > maxLength) {
+      // reserved bits or frame types, or a peer ignoring the negotiated length: whatever follows
+      // can't be made sense of anymore
+      socket.handler(null);
+      errorConsumer.accept(Uri.PROTOCOL_VIOLATION);
+    } else if (length == 0) {
+      onFrameReceived(type, Buffer.buffer());
+    } else {
+      frameType = type;
+      parser.fixedSizeMode(length);
+    }
+  }
+
+  private void onFrameReceived(int type, Buffer payload) {
+    if (type == FRAME_PING) {
+      socket.write(Buffer.buffer(4 + payload.length())
+          .appendInt(FRAME_PONG << 24 | payload.length())
+          .appendBuffer(payload));
+    } else if (type == FRAME_MESSAGE) {
+      try {
+        final WAMPMessage message = serializer.isBinary() ?
+            MessageFactory.parseMessage(payload, serializer.getBinaryDecoder()) :
+            MessageFactory.parseMessage(payload.toString(StandardCharsets.UTF_8),
+                serializer.getTextDecoder());
+        dispatchMessage(message);
+      } catch (IOException e) {
+        errorConsumer.accept(Uri.PROTOCOL_VIOLATION);
+      }
+    }
+    // pongs are only ever answers to pings, which the router doesn't send
+  }
+
+  private void dispatchMessage(WAMPMessage message) {
+    if (message == null) {
+      if (errorConsumer != null) {
+        errorConsumer.accept(Uri.PROTOCOL_VIOLATION);
+      }
+    } else if (messageConsumer != null) {
+      messageConsumer.accept(message);
+    }
+  }
+
+  @Override
+  public void sendMessage(WAMPMessage message, Handler<AsyncResult<Void>> completionHandler)
+      throws IOException {
+    // if the socket is already closed, don't try to send any message anymore
+    if (closed) {
+      throw new IOException("Transport is closed");
+    }
+    if (serializer == null) {
+      throw new IOException("Handshake not completed");
+    }
+    if (socket instanceof NetSocketInternal) {
+      // a buffer of the channel's pooled allocator has to be handed to netty directly, going
+      // through the vert.x buffer API would keep it from ever being released
+      final NetSocketInternal internal = (NetSocketInternal) socket;
+      final ByteBuf frame = encodeFrame(message, internal.channelHandlerContext().alloc());
+      if (completionHandler != null) {
+        internal.writeMessage(frame, completionHandler);
+      } else {
+        internal.writeMessage(frame);
+      }
+    } else {
+      final Buffer frame = Buffer.buffer(encodeFrame(message, heapAllocator));
+      if (completionHandler != null) {
+        socket.write(frame, completionHandler);
+      } else {
+        socket.write(frame);
+      }
+    }
+  }
+
+  private ByteBuf encodeFrame(WAMPMessage message, ByteBufAllocator allocator)
+      throws IOException {
+    final ByteBuf buffer = allocator.buffer();
+    try {
+      buffer.writeInt(0);
+      serializer.getBufferEncoder().encode(message, buffer);
+      final int length = buffer.readableBytes() - 4;
+      if (length > peerMaxLength) {
+        throw new IOException("Message exceeds the maximum length accepted by the peer");
+      }
+      buffer.setInt(0, FRAME_MESSAGE << 24 | length);
+      return buffer;
+    } catch (IOException | RuntimeException e) {
+      buffer.release();
+      throw e;
+    }
+  }
+
+  @Override
+  public void setReceiveHandler(Consumer<WAMPMessage> consumer) {
+    if (consumer == null) {
+      throw new IllegalArgumentException("Invalid receive handler: null");
+    }
+    this.messageConsumer = consumer;
+  }
+
+  @Override
+  public void setErrorHandler(Consumer<Uri> consumer) {
+    if (consumer == null) {
+      throw new IllegalArgumentException("Invalid error handler: null");
+    }
+    this.errorConsumer = consumer;
+  }
+
+  @Override
+  public void close(Promise<Void> promise) {
+    if (closed) {
+      if (promise != null) {
+        promise.complete();
+      }
+    } else {
+      socket.close(voidResult -> {
+        if (promise != null) {
+          promise.complete();
+        }
+      });
+    }
+  }
+}
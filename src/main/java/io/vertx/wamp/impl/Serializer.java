@@ -0,0 +1,140 @@
+package io.vertx.wamp.impl;
+
+import io.vertx.core.buffer.Buffer;
+import io.vertx.wamp.MessageDecoder;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * A WAMP serialization as negotiated by websocket subprotocol. Text serializations are exchanged
+ * in text frames, binary ones in binary frames. The codecs are stateless and shared by all
+ * connections using the serialization.
+ * <p>
+ * Each serialization also comes in a batched variant, where a frame carries several messages:
+ * text messages are each terminated by an ASCII record separator (30), binary ones are each
+ * prefixed by their length as a 4 byte unsigned big endian integer.
+ */
+public final class Serializer {
+
+  public static final Serializer JSON = new Serializer("wamp.2.json", false,
+      new JsonMessageDecoder(), new JsonMessageEncoder(), null, null);
+  public static final Serializer MSGPACK = new Serializer("wamp.2.msgpack", false,
+      null, null, new MsgPackMessageDecoder(), new MsgPackMessageEncoder());
+  public static final Serializer CBOR = new Serializer("wamp.2.cbor", false,
+      null, null, new CborMessageDecoder(), new CborMessageEncoder());
+  public static final Serializer JSON_BATCHED = JSON.batched();
+  public static final Serializer MSGPACK_BATCHED = MSGPACK.batched();
+  public static final Serializer CBOR_BATCHED = CBOR.batched();
+
+  private static final Map<String, Serializer> registry = new LinkedHashMap<>();
+
+  static {
+    for (Serializer serializer : new Serializer[]{JSON, MSGPACK, CBOR, JSON_BATCHED,
+        MSGPACK_BATCHED, CBOR_BATCHED}) {
+      registry.put(serializer.subProtocol, serializer);
+    }
+  }
+
+  private final String subProtocol;
+  private final boolean batched;
+  private final MessageDecoder<String, ?> textDecoder;
+  private final TextMessageEncoder textEncoder;
+  private final MessageDecoder<Buffer, ?> binaryDecoder;
+  private final BinaryMessageEncoder binaryEncoder;
+
+  private Serializer(String subProtocol,
+      boolean batched,
+      MessageDecoder<String, ?> textDecoder,
+      TextMessageEncoder textEncoder,
+      MessageDecoder<Buffer, ?> binaryDecoder,
+      BinaryMessageEncoder binaryEncoder) {
+    this.subProtocol = subProtocol;
+    this.batched = batched;
+    this.textDecoder = textDecoder;
+    this.textEncoder = textEncoder;
+    this.binaryDecoder = binaryDecoder;
+    this.binaryEncoder = binaryEncoder;
+  }
+
+  private Serializer batched() {
+    return new Serializer(subProtocol + ".batched", true, textDecoder, textEncoder,
+        binaryDecoder, binaryEncoder);
+  }
+
+  /**
+   * @return all supported serializations
+   */
+  public static Collection<Serializer> all() {
+    return Collections.unmodifiableCollection(registry.values());
+  }
+
+  /**
+   * Resolves the serialization of a connection once its subprotocol has been negotiated.
+   *
+   * @param subProtocol the negotiated subprotocol, null if the client didn't ask for one
+   * @return the serialization, JSON if no subprotocol has been negotiated and null if the
+   * subprotocol isn't supported
+   */
+  public static Serializer forSubProtocol(String subProtocol) {
+    if (subProtocol == null) {
+      return JSON;
+    }
+    return registry.get(subProtocol.toLowerCase(Locale.ROOT));
+  }
+
+  /**
+   * Resolves the serialization a RawSocket peer asked for in its handshake.
+   *
+   * @param serializerId the serializer ID of the handshake, 1 for JSON, 2 for MsgPack and 3 for
+   *                     CBOR
+   * @return the serialization, null if it isn't supported
+   */
+  public static Serializer forRawSocket(int serializerId) {
+    switch (serializerId) {
+      case 1:
+        return JSON;
+      case 2:
+        return MSGPACK;
+      case 3:
+        return CBOR;
+      default:
+        return null;
+    }
+  }
+
+  public String getSubProtocol() {
+    return subProtocol;
+  }
+
+  public boolean isBinary() {
+    return binaryEncoder != null;
+  }
+
+  public boolean isBatched() {
+    return batched;
+  }
+
+  MessageDecoder<String, ?> getTextDecoder() {
+    return textDecoder;
+  }
+
+  TextMessageEncoder getTextEncoder() {
+    return textEncoder;
+  }
+
+  MessageDecoder<Buffer, ?> getBinaryDecoder() {
+    return binaryDecoder;
+  }
+
+  BinaryMessageEncoder getBinaryEncoder() {
+    return binaryEncoder;
+  }
+
+  // writes the frame content of either kind of serialization
+  BufferMessageEncoder getBufferEncoder() {
+    return binaryEncoder != null ? binaryEncoder : textEncoder;
+  }
+}
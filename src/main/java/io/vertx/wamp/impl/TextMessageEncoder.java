@@ -0,0 +1,10 @@
+package io.vertx.wamp.impl;
+
+import io.vertx.wamp.MessageEncoder;
+
+/**
+ * Encoder of a text serialization, the buffers it writes hold UTF-8 and are sent as text frames.
+ */
+public interface TextMessageEncoder extends MessageEncoder<String>, BufferMessageEncoder {
+
+}
@@ -1,49 +1,162 @@
 package io.vertx.wamp.impl;
 
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.UnpooledByteBufAllocator;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.http.websocketx.BinaryWebSocketFrame;
+import io.netty.handler.codec.http.websocketx.TextWebSocketFrame;
+import io.netty.handler.codec.http.websocketx.WebSocketFrame;
 import io.vertx.core.AsyncResult;
+import io.vertx.core.Context;
+import io.vertx.core.Future;
 import io.vertx.core.Handler;
 import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
 import io.vertx.core.buffer.Buffer;
 import io.vertx.core.http.ServerWebSocket;
+import io.vertx.core.http.impl.WebSocketInternal;
+import io.vertx.core.impl.ContextInternal;
 import io.vertx.wamp.MessageFactory;
 import io.vertx.wamp.MessageTransport;
+import io.vertx.wamp.SlowConsumerPolicy;
 import io.vertx.wamp.Uri;
 import io.vertx.wamp.WAMPMessage;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.function.Consumer;
 
 public class WebsocketMessageTransport implements MessageTransport {
 
+  /**
+   * Default size in bytes after which a batch is sent right away
+   */
+  public static final int DEFAULT_MAX_BATCH_SIZE = 16 * 1024;
+  /**
+   * Default number of milliseconds a message may wait for others to be batched with, 0 meaning
+   * until the messages sent in the same event loop turn have been collected
+   */
+  public static final long DEFAULT_MAX_BATCH_DELAY = 0;
+
+  private static final char RECORD_SEPARATOR = '\u001e';
+  private static final ByteBufAllocator heapAllocator = new UnpooledByteBufAllocator(false);
+
   private final ServerWebSocket websocket;
-  private final JsonMessageDecoder jsonDecoder = new JsonMessageDecoder();
-  private final MsgPackMessageDecoder msgPackDecoder = new MsgPackMessageDecoder();
-  private final JsonMessageEncoder jsonEncoder = new JsonMessageEncoder();
-  private final MsgPackMessageEncoder msgPackEncoder = new MsgPackMessageEncoder();
+  // resolved from the subprotocol once the websocket has been accepted
+  private final Serializer serializer;
+  private final int maxBatchSize;
+  private final long maxBatchDelay;
+  // batches and the outbound queue are only touched on the websocket's context
+  private final Context context;
+  // null if messages are handed to the websocket however full its write queue is
+  private final OutboundQueue outboundQueue;
 
   private Consumer<WAMPMessage> messageConsumer = null;
   private Consumer<Uri> errorConsumer = null;
 
-  public WebsocketMessageTransport(ServerWebSocket websocket) {
+  // the encoded messages of a batched subprotocol waiting to be sent
+  private ByteBuf batch;
+  // only batched transports with completion handlers need it
+  private List<Handler<AsyncResult<Void>>> batchHandlers;
+  private long batchTimer = -1;
+  private boolean batchFlushScheduled;
+  // only touched on the channel's event loop
+  private boolean flushScheduled;
+  // set once a slow consumer is disconnected, the ABORT mustn't wait in the queue
+  private boolean disconnecting;
+
+  public WebsocketMessageTransport(ServerWebSocket websocket, Serializer serializer) {
+    this(websocket, serializer, DEFAULT_MAX_BATCH_SIZE, DEFAULT_MAX_BATCH_DELAY);
+  }
+
+  public WebsocketMessageTransport(ServerWebSocket websocket,
+      Serializer serializer,
+      int maxBatchSize,
+      long maxBatchDelay) {
+    this(websocket, serializer, maxBatchSize, maxBatchDelay, 0, null, null);
+  }
+
+  /**
+   * @param maxQueuedMessages number of messages waiting for the websocket's write queue to drain
+   *                          after which events are handled according to the policy, 0 to never
+   *                          hold back messages
+   * @param policy            what to do with the events of a full queue
+   * @param droppedEvents     counts the events dropped by the policy
+   */
+  public WebsocketMessageTransport(ServerWebSocket websocket,
+      Serializer serializer,
+      int maxBatchSize,
+      long maxBatchDelay,
+      int maxQueuedMessages,
+      SlowConsumerPolicy policy,
+      LongAdder droppedEvents) {
     this.websocket = websocket;
+    this.serializer = serializer;
+    this.maxBatchSize = maxBatchSize;
+    this.maxBatchDelay = maxBatchDelay;
+    this.context = Vertx.currentContext();
     websocket.textMessageHandler(this::onTextMessageReceived);
     websocket.binaryMessageHandler(this::onBinaryMessageReceived);
+    if (maxQueuedMessages > 0) {
+      this.outboundQueue = new OutboundQueue(maxQueuedMessages, policy, droppedEvents);
+      websocket.drainHandler(v -> drainQueue());
+    } else {
+      this.outboundQueue = null;
+    }
   }
 
   private void onTextMessageReceived(String s) {
-    WAMPMessage message = null;
+    if (serializer.isBinary()) {
+      errorConsumer.accept(Uri.PROTOCOL_VIOLATION);
+      return;
+    }
     try {
-      message = MessageFactory.parseMessage(s, jsonDecoder);
-      dispatchMessage(message);
+      if (serializer.isBatched()) {
+        int start = 0;
+        int end;
+        while ((end = s.indexOf(RECORD_SEPARATOR, start)) >= 0) {
+          dispatchMessage(MessageFactory.parseMessage(s.substring(start, end),
+              serializer.getTextDecoder()));
+          start = end + 1;
+        }
+        if (start != s.length()) {
+          // the last message is missing its separator
+          errorConsumer.accept(Uri.PROTOCOL_VIOLATION);
+        }
+      } else {
+        dispatchMessage(MessageFactory.parseMessage(s, serializer.getTextDecoder()));
+      }
     } catch (IOException e) {
       errorConsumer.accept(Uri.PROTOCOL_VIOLATION);
     }
   }
 
   private void onBinaryMessageReceived(Buffer data) {
-    WAMPMessage message = null;
+    if (!serializer.isBinary()) {
+      errorConsumer.accept(Uri.PROTOCOL_VIOLATION);
+      return;
+    }
     try {
-      message = MessageFactory.parseMessage(data, msgPackDecoder);
-      dispatchMessage(message);
+      if (serializer.isBatched()) {
+        int position = 0;
+        while (position < data.length()) {
+          final long length = position + 4 <= data.length() ? data.getUnsignedInt(position) : -1;
+          if (length < 0 || length > data.length() - position - 4) {
+            errorConsumer.accept(Uri.PROTOCOL_VIOLATION);
+            return;
+          }
+          position += 4;
+          dispatchMessage(MessageFactory.parseMessage(
+              data.slice(position, position + (int) length), serializer.getBinaryDecoder()));
+          position += length;
+        }
+      } else {
+        dispatchMessage(MessageFactory.parseMessage(data, serializer.getBinaryDecoder()));
+      }
     } catch (IOException e) {
       errorConsumer.accept(Uri.PROTOCOL_VIOLATION);
     }
@@ -66,23 +179,236 @@ public class WebsocketMessageTransport implements MessageTransport {
     if (websocket.isClosed()) {
       throw new IOException("Transport is closed");
     }
-    if (websocket.subProtocol().equalsIgnoreCase("wamp.2.msgpack")) {
-      final Buffer buffer = msgPackEncoder.encode(message);
+    if (isOffContext()) {
+      context.runOnContext(v -> {
+        try {
+          // the websocket may have been closed while the message waited for the context, and its
+          // write queue can't be asked about anymore then
+          if (websocket.isClosed()) {
+            throw new IOException("Transport is closed");
+          }
+          send(message, completionHandler);
+        } catch (IOException e) {
+          if (completionHandler != null) {
+            completionHandler.handle(Future.failedFuture(e));
+          }
+        }
+      });
+    } else {
+      send(message, completionHandler);
+    }
+  }
+
+  // batches and the outbound queue have to be touched on the context, if there is one
+  private boolean isOffContext() {
+    return (serializer.isBatched() || outboundQueue != null) && context != null
+        && Vertx.currentContext() != context;
+  }
+
+  private void send(WAMPMessage message, Handler<AsyncResult<Void>> completionHandler)
+      throws IOException {
+    if (outboundQueue != null && !disconnecting
+        && (!outboundQueue.isEmpty() || websocket.writeQueueFull())) {
+      // queued messages go first to keep the order
+      if (!outboundQueue.offer(message, completionHandler)) {
+        disconnectSlowConsumer();
+      }
+    } else {
+      write(message, completionHandler);
+    }
+  }
+
+  private void write(WAMPMessage message, Handler<AsyncResult<Void>> completionHandler)
+      throws IOException {
+    if (serializer.isBatched() && context != null) {
+      addToBatch(message, completionHandler);
+    } else if (websocket instanceof WebSocketInternal) {
+      writePooledMessage((WebSocketInternal) websocket, message, completionHandler);
+    } else if (serializer.isBinary()) {
+      final Buffer buffer = serializer.getBinaryEncoder().encode(message);
       if (completionHandler != null) {
         websocket.writeBinaryMessage(buffer, completionHandler);
       } else {
         websocket.writeBinaryMessage(buffer);
       }
     } else {
-      final String json = jsonEncoder.encode(message);
+      final String text = serializer.getTextEncoder().encode(message);
       if (completionHandler != null) {
-        websocket.writeTextMessage(json, completionHandler);
+        websocket.writeTextMessage(text, completionHandler);
       } else {
-        websocket.writeTextMessage(json);
+        websocket.writeTextMessage(text);
       }
     }
   }
 
+  private void drainQueue() {
+    if (websocket.isClosed()) {
+      outboundQueue.clear();
+      return;
+    }
+    OutboundQueue.Entry entry;
+    while (!websocket.writeQueueFull() && (entry = outboundQueue.poll()) != null) {
+      writeQueued(entry);
+    }
+  }
+
+  private void writeQueued(OutboundQueue.Entry entry) {
+    try {
+      write(entry.message, entry.completionHandler);
+    } catch (IOException e) {
+      if (entry.completionHandler != null) {
+        entry.completionHandler.handle(Future.failedFuture(e));
+      }
+    }
+  }
+
+  // the client is told why by the session's ABORT, which is sent right away, and the websocket
+  // is closed even if the client never reads it
+  private void disconnectSlowConsumer() {
+    disconnecting = true;
+    if (errorConsumer != null) {
+      errorConsumer.accept(Uri.SYSTEM_SHUTDOWN);
+    }
+    flushBatch();
+    websocket.close();
+  }
+
+  // encodes into a buffer of the channel's pooled allocator and hands it to netty directly, going
+  // through the vert.x buffer API would keep the pooled buffer from ever being released
+  private void writePooledMessage(WebSocketInternal webSocketInternal, WAMPMessage message,
+      Handler<AsyncResult<Void>> completionHandler) throws IOException {
+    final ChannelHandlerContext chctx = webSocketInternal.channelHandlerContext();
+    final ByteBuf buffer = serializer.getBufferEncoder().encode(message, chctx.alloc());
+    writePooledFrame(chctx, buffer, completionHandler);
+  }
+
+  private void writePooledFrame(ChannelHandlerContext chctx, ByteBuf buffer,
+      Handler<AsyncResult<Void>> completionHandler) {
+    final WebSocketFrame frame = serializer.isBinary() ?
+        new BinaryWebSocketFrame(buffer) : new TextWebSocketFrame(buffer);
+    final ChannelFuture written;
+    if (chctx.executor().inEventLoop()) {
+      // frames written during the same event loop turn share a single flush at its end
+      written = chctx.write(frame);
+      if (!flushScheduled) {
+        flushScheduled = true;
+        chctx.executor().execute(() -> {
+          flushScheduled = false;
+          chctx.flush();
+        });
+      }
+    } else {
+      // the write is handed to the event loop as a task anyway
+      written = chctx.writeAndFlush(frame);
+    }
+    if (completionHandler != null) {
+      if (context != null) {
+        // like vert.x's own writes, the handler is called on the context rather than by netty
+        written.addListener(((ContextInternal) context).promise(completionHandler));
+      } else {
+        written.addListener(result -> completionHandler.handle(result.isSuccess() ?
+            Future.succeededFuture() : Future.failedFuture(result.cause())));
+      }
+    }
+  }
+
+  // the message is encoded right away, so it can't change while it's waiting for the batch to
+  // be sent
+  private void addToBatch(WAMPMessage message, Handler<AsyncResult<Void>> completionHandler)
+      throws IOException {
+    if (batch == null) {
+      batch = websocket instanceof WebSocketInternal ?
+          ((WebSocketInternal) websocket).channelHandlerContext().alloc().buffer() :
+          heapAllocator.buffer();
+    }
+    if (serializer.isBinary()) {
+      final int start = batch.writerIndex();
+      batch.writeInt(0);
+      try {
+        serializer.getBinaryEncoder().encode(message, batch);
+      } catch (IOException | RuntimeException e) {
+        batch.writerIndex(start);
+        throw e;
+      }
+      batch.setInt(start, batch.writerIndex() - start - 4);
+    } else {
+      serializer.getTextEncoder().encode(message, batch);
+      batch.writeByte(RECORD_SEPARATOR);
+    }
+    if (completionHandler != null) {
+      if (batchHandlers == null) {
+        batchHandlers = new ArrayList<>();
+      }
+      batchHandlers.add(completionHandler);
+    }
+    if (batch.readableBytes() >= maxBatchSize) {
+      flushBatch();
+    } else if (!batchFlushScheduled) {
+      batchFlushScheduled = true;
+      if (maxBatchDelay > 0) {
+        batchTimer = context.owner().setTimer(maxBatchDelay, id -> {
+          batchTimer = -1;
+          flushBatch();
+        });
+      } else {
+        context.runOnContext(v -> flushBatch());
+      }
+    }
+  }
+
+  private void flushBatch() {
+    batchFlushScheduled = false;
+    if (batchTimer >= 0) {
+      context.owner().cancelTimer(batchTimer);
+      batchTimer = -1;
+    }
+    if (batch == null) {
+      return;
+    }
+    if (websocket.isClosed()) {
+      discardBatch();
+      return;
+    }
+    final List<Handler<AsyncResult<Void>>> handlers = batchHandlers;
+    batchHandlers = null;
+    final Handler<AsyncResult<Void>> completionHandler = handlers == null ? null :
+        result -> handlers.forEach(handler -> handler.handle(result));
+    final ByteBuf buffer = batch;
+    batch = null;
+    if (websocket instanceof WebSocketInternal) {
+      writePooledFrame(((WebSocketInternal) websocket).channelHandlerContext(), buffer,
+          completionHandler);
+    } else if (serializer.isBinary()) {
+      if (completionHandler != null) {
+        websocket.writeBinaryMessage(Buffer.buffer(buffer), completionHandler);
+      } else {
+        websocket.writeBinaryMessage(Buffer.buffer(buffer));
+      }
+    } else {
+      final String text = buffer.toString(StandardCharsets.UTF_8);
+      buffer.release();
+      if (completionHandler != null) {
+        websocket.writeTextMessage(text, completionHandler);
+      } else {
+        websocket.writeTextMessage(text);
+      }
+    }
+  }
+
+  // fails the handlers of the batched messages, which can't be sent anymore
+  private void discardBatch() {
+    if (batch != null) {
+      batch.release();
+      batch = null;
+    }
+    final List<Handler<AsyncResult<Void>>> handlers = batchHandlers;
+    batchHandlers = null;
+    if (handlers != null) {
+      final Future<Void> failure = Future.failedFuture(new IOException("Transport is closed"));
+      handlers.forEach(handler -> handler.handle(failure));
+    }
+  }
+
   @Override
   public void setReceiveHandler(Consumer<WAMPMessage> consumer) {
     if (consumer == null) {
@@ -99,13 +425,39 @@ public class WebsocketMessageTransport implements MessageTransport {
     this.errorConsumer = consumer;
   }
 
+  @Override
+  public void pause() {
+    websocket.pause();
+  }
+
+  @Override
+  public void resume() {
+    websocket.resume();
+  }
+
   @Override
   public void close(Promise<Void> promise) {
+    if (isOffContext()) {
+      context.runOnContext(v -> close(promise));
+      return;
+    }
     if (websocket.isClosed()) {
+      if (outboundQueue != null) {
+        outboundQueue.clear();
+      }
+      discardBatch();
       if (promise != null) {
         promise.complete();
       }
     } else {
+      // whatever is still queued or batched goes out before the close frame
+      if (outboundQueue != null) {
+        for (OutboundQueue.Entry entry = outboundQueue.poll(); entry != null;
+            entry = outboundQueue.poll()) {
+          writeQueued(entry);
+        }
+      }
+      flushBatch();
       websocket.close(voidResult -> {
         if (promise != null) {
           promise.complete();
@@ -1,7 +1,9 @@
 package io.vertx.wamp.messages;
 
 import io.vertx.wamp.MessageDecoder;
+import io.vertx.wamp.PayloadWriter;
 import io.vertx.wamp.Uri;
+import java.io.IOException;
 import java.util.List;
 import java.util.Map;
 
@@ -19,7 +21,7 @@ public class AbortMessage extends AbstractWAMPMessage {
   public <T> AbortMessage(T data, MessageDecoder<?, T> decoder) {
     super(Type.ABORT);
     this.details = decoder.getMap(data, 0);
-    this.reason = new Uri(decoder.getString(data, 1));
+    this.reason = Uri.valueOf(decoder.getString(data, 1));
   }
 
   @Override
@@ -27,6 +29,12 @@ public class AbortMessage extends AbstractWAMPMessage {
     return List.of(details, reason);
   }
 
+  @Override
+  public void writePayload(PayloadWriter writer) throws IOException {
+    writer.writeValue(details);
+    writer.writeValue(reason);
+  }
+
   public Uri getReason() {
     return reason;
   }
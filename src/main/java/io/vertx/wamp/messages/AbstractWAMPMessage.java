@@ -1,6 +1,8 @@
 package io.vertx.wamp.messages;
 
+import io.vertx.wamp.PayloadWriter;
 import io.vertx.wamp.WAMPMessage;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
@@ -17,7 +19,17 @@ public abstract class AbstractWAMPMessage implements WAMPMessage {
     return type;
   }
 
-  void addArgsAndArgsKw(ArrayList<Object> list, List<?> arguments,
+  // a raw payload stands in for both arguments and keyword arguments
+  static void addArgsAndArgsKw(ArrayList<Object> list, List<?> arguments,
+      Map<String, ?> argumentsKw, RawPayload rawPayload) {
+    if (rawPayload != null) {
+      list.add(rawPayload);
+    } else {
+      addArgsAndArgsKw(list, arguments, argumentsKw);
+    }
+  }
+
+  static void addArgsAndArgsKw(ArrayList<Object> list, List<?> arguments,
       Map<String, ?> argumentsKw) {
     if (arguments != null) {
       list.add(arguments);
@@ -29,4 +41,19 @@ public abstract class AbstractWAMPMessage implements WAMPMessage {
       list.add(argumentsKw);
     }
   }
+
+  static void writeArgsAndArgsKw(PayloadWriter writer, List<?> arguments,
+      Map<String, ?> argumentsKw, RawPayload rawPayload) throws IOException {
+    if (rawPayload != null) {
+      writer.writeValue(rawPayload);
+    } else if (arguments != null) {
+      writer.writeValue(arguments);
+      if (argumentsKw != null) {
+        writer.writeValue(argumentsKw);
+      }
+    } else if (argumentsKw != null) {
+      writer.writeValue(null);
+      writer.writeValue(argumentsKw);
+    }
+  }
 }
@@ -13,14 +13,29 @@ public class CallMessage extends AbstractWAMPMessage {
   private final Uri procedure;
   private final List<Object> arguments;
   private final Map<String, Object> argumentsKw;
+  private final RawPayload rawPayload;
+
+  public CallMessage(long id, Map<String, Object> options, Uri procedure, List<Object> arguments,
+      Map<String, Object> argumentsKw) {
+    super(Type.CALL);
+    this.id = id;
+    this.options = options;
+    this.procedure = procedure;
+    this.arguments = arguments;
+    this.argumentsKw = argumentsKw;
+    this.rawPayload = null;
+  }
 
   public <T> CallMessage(T data, MessageDecoder<?, T> decoder) {
     super(Type.CALL);
     this.id = decoder.getLong(data, 0);
     this.options = decoder.getMap(data, 1);
-    this.procedure = new Uri(decoder.getString(data, 2));
-    this.arguments = decoder.elementCount(data) > 3 ? decoder.getList(data, 3) : null;
-    this.argumentsKw = decoder.elementCount(data) > 4 ? decoder.getMap(data, 4) : null;
+    this.procedure = Uri.valueOf(decoder.getString(data, 2));
+    this.rawPayload = decoder.getRawPayload(data, 3);
+    this.arguments = rawPayload == null && decoder.elementCount(data) > 3 ?
+        decoder.getList(data, 3) : null;
+    this.argumentsKw = rawPayload == null && decoder.elementCount(data) > 4 ?
+        decoder.getMap(data, 4) : null;
   }
 
   @Override
@@ -29,16 +44,21 @@ public class CallMessage extends AbstractWAMPMessage {
     result.add(id);
     result.add(options);
     result.add(procedure);
-    addArgsAndArgsKw(result, arguments, argumentsKw);
+    addArgsAndArgsKw(result, arguments, argumentsKw, rawPayload);
     return result;
   }
 
   public List<Object> getArguments() {
-    return arguments;
+    return rawPayload != null ? rawPayload.getArguments() : arguments;
   }
 
   public Map<String, Object> getArgumentsKw() {
-    return argumentsKw;
+    return rawPayload != null ? rawPayload.getArgumentsKw() : argumentsKw;
+  }
+
+  // the undecoded arguments, null if they have been decoded right away
+  public RawPayload getRawPayload() {
+    return rawPayload;
   }
 
   public Uri getProcedure() {
@@ -1,7 +1,9 @@
 package io.vertx.wamp.messages;
 
+import io.vertx.wamp.PayloadWriter;
 import io.vertx.wamp.Uri;
 import io.vertx.wamp.WAMPMessage;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
@@ -52,6 +54,15 @@ public class ErrorMessage extends AbstractWAMPMessage {
     return result;
   }
 
+  @Override
+  public void writePayload(PayloadWriter writer) throws IOException {
+    writer.writeLong(requestType.getMessageCode());
+    writer.writeLong(id);
+    writer.writeValue(details);
+    writer.writeValue(error);
+    writeArgsAndArgsKw(writer, arguments, argumentsKw, null);
+  }
+
   public Uri getError() {
     return error;
   }
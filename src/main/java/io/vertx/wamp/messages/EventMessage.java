@@ -1,57 +1,137 @@
 package io.vertx.wamp.messages;
 
+import io.vertx.wamp.PayloadWriter;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
 
 public class EventMessage extends AbstractWAMPMessage {
 
   private final long subscriptionId;
-  private final long publicationId;
-  private final Map<String, Object> details;
-  private final List<Object> arguments;
-  private final Map<String, Object> argumentsKw;
+  private final Publication publication;
 
   public EventMessage(long subscriptionId,
       long publicationId,
       Map<String, Object> details,
       List<Object> arguments,
       Map<String, Object> argumentsKw) {
+    this(subscriptionId, new Publication(publicationId, details, arguments, argumentsKw));
+  }
+
+  public EventMessage(long subscriptionId, Publication publication) {
     super(Type.EVENT);
     this.subscriptionId = subscriptionId;
-    this.publicationId = publicationId;
-    this.details = details;
-    this.arguments = arguments;
-    this.argumentsKw = argumentsKw;
+    this.publication = publication;
   }
 
   @Override
   public List<Object> getPayload() {
     ArrayList<Object> res = new ArrayList<>();
     res.add(subscriptionId);
-    res.add(publicationId);
-    res.add(details);
-    addArgsAndArgsKw(res, arguments, argumentsKw);
+    res.addAll(publication.getPayload());
     return res;
   }
 
+  @Override
+  public void writePayload(PayloadWriter writer) throws IOException {
+    writer.writeLong(subscriptionId);
+    publication.writePayload(writer);
+  }
+
   public long getSubscriptionId() {
     return subscriptionId;
   }
 
   public long getPublicationId() {
-    return publicationId;
+    return publication.publicationId;
   }
 
   public Map<String, Object> getDetails() {
-    return details;
+    return publication.details;
   }
 
   public List<Object> getArguments() {
-    return arguments;
+    return publication.getArguments();
   }
 
   public Map<String, Object> getArgumentsKw() {
-    return argumentsKw;
+    return publication.getArgumentsKw();
+  }
+
+  public Publication getPublication() {
+    return publication;
+  }
+
+  /**
+   * The part of an EVENT that is the same for all subscribers receiving a publication. Encoders can
+   * store their encoded representation of it here so that it only has to be encoded once per
+   * serializer instead of once per subscriber.
+   */
+  public static class Publication {
+
+    private final long publicationId;
+    private final Map<String, Object> details;
+    private final List<Object> arguments;
+    private final Map<String, Object> argumentsKw;
+    private final RawPayload rawPayload;
+    private final Map<Object, Object> encoded = new ConcurrentHashMap<>(4);
+
+    public Publication(long publicationId,
+        Map<String, Object> details,
+        List<Object> arguments,
+        Map<String, Object> argumentsKw) {
+      this(publicationId, details, arguments, argumentsKw, null);
+    }
+
+    public Publication(long publicationId,
+        Map<String, Object> details,
+        List<Object> arguments,
+        Map<String, Object> argumentsKw,
+        RawPayload rawPayload) {
+      this.publicationId = publicationId;
+      this.details = details;
+      this.arguments = arguments;
+      this.argumentsKw = argumentsKw;
+      this.rawPayload = rawPayload;
+    }
+
+    public List<Object> getArguments() {
+      return rawPayload != null ? rawPayload.getArguments() : arguments;
+    }
+
+    public Map<String, Object> getArgumentsKw() {
+      return rawPayload != null ? rawPayload.getArgumentsKw() : argumentsKw;
+    }
+
+    // everything following the subscription ID in the EVENT message
+    public List<Object> getPayload() {
+      ArrayList<Object> res = new ArrayList<>();
+      res.add(publicationId);
+      res.add(details);
+      EventMessage.addArgsAndArgsKw(res, arguments, argumentsKw, rawPayload);
+      return res;
+    }
+
+    public void writePayload(PayloadWriter writer) throws IOException {
+      writer.writeLong(publicationId);
+      writer.writeValue(details);
+      writeArgsAndArgsKw(writer, arguments, argumentsKw, rawPayload);
+    }
+
+    /**
+     * Returns the encoded payload for the given serializer, encoding it on first access.
+     *
+     * @param key    identifies the serializer
+     * @param encode produces the encoded payload
+     * @param <T>    type of the encoded payload
+     * @return the encoded payload shared by all events of this publication
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T getEncoded(Object key, Function<Publication, T> encode) {
+      return (T) encoded.computeIfAbsent(key, k -> encode.apply(this));
+    }
   }
 }
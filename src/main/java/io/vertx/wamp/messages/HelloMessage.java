@@ -18,7 +18,7 @@ public class HelloMessage extends AbstractWAMPMessage {
 
   public <T> HelloMessage(T data, MessageDecoder<?, T> decoder) {
     super(Type.HELLO);
-    this.realm = new Uri(decoder.getString(data, 0));
+    this.realm = Uri.valueOf(decoder.getString(data, 0));
     this.details = decoder.getMap(data, 1);
   }
 
@@ -1,5 +1,7 @@
 package io.vertx.wamp.messages;
 
+import io.vertx.wamp.PayloadWriter;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
@@ -11,17 +13,27 @@ public class InvocationMessage extends AbstractWAMPMessage {
   private final Map<String, Object> details;
   private final List<Object> arguments;
   private final Map<String, Object> argumentsKw;
+  private final RawPayload rawPayload;
 
   public InvocationMessage(long id, long registrationId,
       Map<String, Object> details,
       List<Object> arguments,
       Map<String, Object> argumentsKw) {
+    this(id, registrationId, details, arguments, argumentsKw, null);
+  }
+
+  public InvocationMessage(long id, long registrationId,
+      Map<String, Object> details,
+      List<Object> arguments,
+      Map<String, Object> argumentsKw,
+      RawPayload rawPayload) {
     super(Type.INVOCATION);
     this.id = id;
     this.registrationId = registrationId;
     this.details = details;
     this.arguments = arguments;
     this.argumentsKw = argumentsKw;
+    this.rawPayload = rawPayload;
   }
 
   @Override
@@ -30,16 +42,29 @@ public class InvocationMessage extends AbstractWAMPMessage {
     result.add(id);
     result.add(registrationId);
     result.add(details);
-    addArgsAndArgsKw(result, arguments, argumentsKw);
+    addArgsAndArgsKw(result, arguments, argumentsKw, rawPayload);
     return result;
   }
 
+  @Override
+  public void writePayload(PayloadWriter writer) throws IOException {
+    writer.writeLong(id);
+    writer.writeLong(registrationId);
+    writer.writeValue(details);
+    writeArgsAndArgsKw(writer, arguments, argumentsKw, rawPayload);
+  }
+
   public List<Object> getArguments() {
-    return arguments;
+    return rawPayload != null ? rawPayload.getArguments() : arguments;
   }
 
   public Map<String, Object> getArgumentsKw() {
-    return argumentsKw;
+    return rawPayload != null ? rawPayload.getArgumentsKw() : argumentsKw;
+  }
+
+  // the undecoded arguments, null if they have been decoded right away
+  public RawPayload getRawPayload() {
+    return rawPayload;
   }
 
   public Long getRegistrationId() {
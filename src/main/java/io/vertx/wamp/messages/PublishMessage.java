@@ -13,6 +13,7 @@ public class PublishMessage extends AbstractWAMPMessage {
   private final Uri topic;
   private final List<Object> arguments;
   private final Map<String, Object> argumentsKw;
+  private final RawPayload rawPayload;
 
   public PublishMessage(long id, Map<String, Object> options, Uri topic, List<Object> arguments,
       Map<String,
@@ -23,15 +24,17 @@ public class PublishMessage extends AbstractWAMPMessage {
     this.topic = topic;
     this.arguments = arguments;
     this.argumentsKw = argumentsKw;
+    this.rawPayload = null;
   }
 
   public <T> PublishMessage(T data, MessageDecoder<?, T> decoder) {
     super(Type.PUBLISH);
     this.id = decoder.getLong(data, 0);
     this.options = decoder.getMap(data, 1);
-    this.topic = new Uri(decoder.getString(data, 2));
-    this.arguments = decoder.getList(data, 3);
-    this.argumentsKw = decoder.getMap(data, 4);
+    this.topic = Uri.valueOf(decoder.getString(data, 2));
+    this.rawPayload = decoder.getRawPayload(data, 3);
+    this.arguments = rawPayload == null ? decoder.getList(data, 3) : null;
+    this.argumentsKw = rawPayload == null ? decoder.getMap(data, 4) : null;
   }
 
   @Override
@@ -40,16 +43,21 @@ public class PublishMessage extends AbstractWAMPMessage {
     result.add(id);
     result.add(options);
     result.add(topic);
-    addArgsAndArgsKw(result, arguments, argumentsKw);
+    addArgsAndArgsKw(result, arguments, argumentsKw, rawPayload);
     return result;
   }
 
   public List<Object> getArguments() {
-    return arguments;
+    return rawPayload != null ? rawPayload.getArguments() : arguments;
   }
 
   public Map<String, Object> getArgumentsKw() {
-    return argumentsKw;
+    return rawPayload != null ? rawPayload.getArgumentsKw() : argumentsKw;
+  }
+
+  // the undecoded arguments, null if they have been decoded right away
+  public RawPayload getRawPayload() {
+    return rawPayload;
   }
 
   public Uri getTopic() {
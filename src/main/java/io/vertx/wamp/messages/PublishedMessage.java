@@ -1,5 +1,7 @@
 package io.vertx.wamp.messages;
 
+import io.vertx.wamp.PayloadWriter;
+import java.io.IOException;
 import java.util.List;
 
 public class PublishedMessage extends AbstractWAMPMessage {
@@ -17,4 +19,18 @@ public class PublishedMessage extends AbstractWAMPMessage {
   public List<Object> getPayload() {
     return List.of(id, publication);
   }
+
+  @Override
+  public void writePayload(PayloadWriter writer) throws IOException {
+    writer.writeLong(id);
+    writer.writeLong(publication);
+  }
+
+  public long getId() {
+    return id;
+  }
+
+  public long getPublication() {
+    return publication;
+  }
 }
@@ -0,0 +1,61 @@
+package io.vertx.wamp.messages;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The arguments and keyword arguments of a message, kept in the serialized form they were received
+ * in. The router doesn't need to look at them, so an encoder for the same serialization copies them
+ * through verbatim while anybody else (other serializers, security policies) decodes them on first
+ * access.
+ * <p>
+ * The payload always covers the trailing elements of a message, i.e. either the arguments alone or
+ * the arguments followed by the keyword arguments.
+ */
+public abstract class RawPayload {
+
+  private final int elementCount;
+  private volatile List<Object> decoded;
+
+  protected RawPayload(int elementCount) {
+    this.elementCount = elementCount;
+  }
+
+  /**
+   * @return the number of message elements contained, 1 (arguments) or 2 (arguments and keyword
+   * arguments)
+   */
+  public int getElementCount() {
+    return elementCount;
+  }
+
+  @SuppressWarnings("unchecked")
+  public List<Object> getArguments() {
+    return getDecoded().isEmpty() ? null : (List<Object>) getDecoded().get(0);
+  }
+
+  @SuppressWarnings("unchecked")
+  public Map<String, Object> getArgumentsKw() {
+    return getDecoded().size() < 2 ? null : (Map<String, Object>) getDecoded().get(1);
+  }
+
+  /**
+   * @return the decoded elements, in message order
+   */
+  public List<Object> getDecoded() {
+    List<Object> result = decoded;
+    if (result == null) {
+      result = Collections.unmodifiableList(decode());
+      decoded = result;
+    }
+    return result;
+  }
+
+  /**
+   * Decodes the contained elements
+   *
+   * @return the arguments and, if contained, keyword arguments
+   */
+  protected abstract List<Object> decode();
+}
@@ -22,7 +22,7 @@ public class RegisterMessage extends AbstractWAMPMessage {
     super(Type.REGISTER);
     this.requestId = decoder.getLong(data, 0);
     this.options = decoder.getMap(data, 1);
-    this.procedure = new Uri(decoder.getString(data, 2));
+    this.procedure = Uri.valueOf(decoder.getString(data, 2));
   }
 
   @Override
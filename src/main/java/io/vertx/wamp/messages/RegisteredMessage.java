@@ -1,5 +1,7 @@
 package io.vertx.wamp.messages;
 
+import io.vertx.wamp.PayloadWriter;
+import java.io.IOException;
 import java.util.List;
 
 public class RegisteredMessage extends AbstractWAMPMessage {
@@ -18,6 +20,12 @@ public class RegisteredMessage extends AbstractWAMPMessage {
     return List.of(id, registration);
   }
 
+  @Override
+  public void writePayload(PayloadWriter writer) throws IOException {
+    writer.writeLong(id);
+    writer.writeLong(registration);
+  }
+
   public long getId() {
     return id;
   }
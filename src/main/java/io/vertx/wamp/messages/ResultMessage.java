@@ -1,5 +1,7 @@
 package io.vertx.wamp.messages;
 
+import io.vertx.wamp.PayloadWriter;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
@@ -10,16 +12,26 @@ public class ResultMessage extends AbstractWAMPMessage {
   private final Map<String, Object> details;
   private final List<Object> arguments;
   private final Map<String, Object> argumentsKw;
+  private final RawPayload rawPayload;
 
   public ResultMessage(long requestId,
       Map<String, Object> details,
       List<Object> arguments,
       Map<String, Object> argumentsKw) {
+    this(requestId, details, arguments, argumentsKw, null);
+  }
+
+  public ResultMessage(long requestId,
+      Map<String, Object> details,
+      List<Object> arguments,
+      Map<String, Object> argumentsKw,
+      RawPayload rawPayload) {
     super(Type.RESULT);
     this.requestId = requestId;
     this.details = details;
     this.arguments = arguments;
     this.argumentsKw = argumentsKw;
+    this.rawPayload = rawPayload;
   }
 
   @Override
@@ -27,16 +39,28 @@ public class ResultMessage extends AbstractWAMPMessage {
     ArrayList<Object> result = new ArrayList<>();
     result.add(requestId);
     result.add(details);
-    addArgsAndArgsKw(result, arguments, argumentsKw);
+    addArgsAndArgsKw(result, arguments, argumentsKw, rawPayload);
     return result;
   }
 
+  @Override
+  public void writePayload(PayloadWriter writer) throws IOException {
+    writer.writeLong(requestId);
+    writer.writeValue(details);
+    writeArgsAndArgsKw(writer, arguments, argumentsKw, rawPayload);
+  }
+
   public List<Object> getArguments() {
-    return arguments;
+    return rawPayload != null ? rawPayload.getArguments() : arguments;
   }
 
   public Map<String, Object> getArgumentsKw() {
-    return argumentsKw;
+    return rawPayload != null ? rawPayload.getArgumentsKw() : argumentsKw;
+  }
+
+  // the undecoded arguments, null if they have been decoded right away
+  public RawPayload getRawPayload() {
+    return rawPayload;
   }
 
   public Long getRequestId() {
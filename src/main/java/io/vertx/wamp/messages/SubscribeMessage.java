@@ -1,5 +1,6 @@
 package io.vertx.wamp.messages;
 
+import io.vertx.wamp.MatchPolicy;
 import io.vertx.wamp.MessageDecoder;
 import io.vertx.wamp.Uri;
 import java.util.List;
@@ -22,7 +23,22 @@ public class SubscribeMessage extends AbstractWAMPMessage {
     super(Type.SUBSCRIBE);
     this.id = decoder.getLong(data, 0);
     this.options = decoder.getMap(data, 1);
-    this.topic = new Uri(decoder.getString(data, 2));
+    this.topic = parseTopic(decoder.getString(data, 2), options == null ? null :
+        options.get("match"));
+  }
+
+  // wildcard subscriptions may contain empty URI components, prefix subscriptions may end with a
+  // dot to only match topics below the prefix (e.g. com.acme.metrics.)
+  private static Uri parseTopic(String topicValue, Object match) {
+    if (MatchPolicy.WILDCARD.getOption().equals(match)) {
+      return Uri.pattern(topicValue);
+    }
+    if (MatchPolicy.PREFIX.getOption().equals(match) && topicValue.endsWith(".")) {
+      // the prefix itself has to be a valid URI
+      Uri.valueOf(topicValue.substring(0, topicValue.length() - 1));
+      return Uri.pattern(topicValue);
+    }
+    return Uri.valueOf(topicValue);
   }
 
   @Override
@@ -1,5 +1,7 @@
 package io.vertx.wamp.messages;
 
+import io.vertx.wamp.PayloadWriter;
+import java.io.IOException;
 import java.util.List;
 
 public class SubscribedMessage extends AbstractWAMPMessage {
@@ -18,6 +20,12 @@ public class SubscribedMessage extends AbstractWAMPMessage {
     return List.of(id, subscription);
   }
 
+  @Override
+  public void writePayload(PayloadWriter writer) throws IOException {
+    writer.writeLong(id);
+    writer.writeLong(subscription);
+  }
+
   public long getId() {
     return id;
   }
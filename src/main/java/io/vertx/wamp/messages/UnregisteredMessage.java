@@ -1,5 +1,7 @@
 package io.vertx.wamp.messages;
 
+import io.vertx.wamp.PayloadWriter;
+import java.io.IOException;
 import java.util.List;
 
 public class UnregisteredMessage extends AbstractWAMPMessage {
@@ -19,4 +21,9 @@ public class UnregisteredMessage extends AbstractWAMPMessage {
   public List<Object> getPayload() {
     return List.of(requestId);
   }
+
+  @Override
+  public void writePayload(PayloadWriter writer) throws IOException {
+    writer.writeLong(requestId);
+  }
 }
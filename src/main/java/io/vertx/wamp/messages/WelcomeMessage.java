@@ -1,5 +1,7 @@
 package io.vertx.wamp.messages;
 
+import io.vertx.wamp.PayloadWriter;
+import java.io.IOException;
 import java.util.List;
 import java.util.Map;
 
@@ -22,4 +24,10 @@ public class WelcomeMessage extends AbstractWAMPMessage {
   public List<Object> getPayload() {
     return List.of(sessionId, details);
   }
+
+  @Override
+  public void writePayload(PayloadWriter writer) throws IOException {
+    writer.writeLong(sessionId);
+    writer.writeValue(details);
+  }
 }
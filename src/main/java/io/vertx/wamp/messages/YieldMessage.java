@@ -11,13 +11,27 @@ public class YieldMessage extends AbstractWAMPMessage {
   private final Map<String, Object> options;
   private final List<Object> arguments;
   private final Map<String, Object> argumentsKw;
+  private final RawPayload rawPayload;
+
+  public YieldMessage(long requestId, Map<String, Object> options, List<Object> arguments,
+      Map<String, Object> argumentsKw) {
+    super(Type.YIELD);
+    this.requestId = requestId;
+    this.options = options;
+    this.arguments = arguments;
+    this.argumentsKw = argumentsKw;
+    this.rawPayload = null;
+  }
 
   public <T> YieldMessage(T data, MessageDecoder<?, T> decoder) {
     super(Type.YIELD);
     this.requestId = decoder.getLong(data, 0);
     this.options = decoder.getMap(data, 1);
-    this.arguments = decoder.elementCount(data) > 2 ? decoder.getList(data, 2) : null;
-    this.argumentsKw = decoder.elementCount(data) > 3 ? decoder.getMap(data, 3) : null;
+    this.rawPayload = decoder.getRawPayload(data, 2);
+    this.arguments = rawPayload == null && decoder.elementCount(data) > 2 ?
+        decoder.getList(data, 2) : null;
+    this.argumentsKw = rawPayload == null && decoder.elementCount(data) > 3 ?
+        decoder.getMap(data, 3) : null;
   }
 
   @Override
@@ -25,16 +39,21 @@ public class YieldMessage extends AbstractWAMPMessage {
     ArrayList<Object> result = new ArrayList<>();
     result.add(requestId);
     result.add(options);
-    addArgsAndArgsKw(result, arguments, argumentsKw);
+    addArgsAndArgsKw(result, arguments, argumentsKw, rawPayload);
     return result;
   }
 
   public List<Object> getArguments() {
-    return arguments;
+    return rawPayload != null ? rawPayload.getArguments() : arguments;
   }
 
   public Map<String, Object> getArgumentsKw() {
-    return argumentsKw;
+    return rawPayload != null ? rawPayload.getArgumentsKw() : argumentsKw;
+  }
+
+  // the undecoded arguments, null if they have been decoded right away
+  public RawPayload getRawPayload() {
+    return rawPayload;
   }
 
   public Long getRequestId() {
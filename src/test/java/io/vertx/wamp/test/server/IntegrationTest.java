@@ -104,7 +104,7 @@ class IntegrationTest {
   }
 
   @ParameterizedTest(name = "It allows clients to publish messages using {0}")
-  @ValueSource(strings = {"wamp.2.json", "wamp.2.msgpack"})
+  @ValueSource(strings = {"wamp.2.json", "wamp.2.msgpack", "wamp.2.cbor"})
   void testPublish(String subProtocol, Vertx vertx, VertxTestContext testContext) {
     Checkpoint checkpoint = testContext.checkpoint();
     startWithTestRealm(vertx, testContext, server -> {
@@ -124,7 +124,7 @@ class IntegrationTest {
   }
 
   @ParameterizedTest(name = "It allows clients to subscribe to and receive messages using {0}")
-  @ValueSource(strings = {"wamp.2.json", "wamp.2.msgpack"})
+  @ValueSource(strings = {"wamp.2.json", "wamp.2.msgpack", "wamp.2.cbor"})
   void testSubscribe(String subProtocol, Vertx vertx, VertxTestContext testContext) {
     Checkpoint checkpoint = testContext.checkpoint();
     startWithTestRealm(vertx, testContext, server -> {
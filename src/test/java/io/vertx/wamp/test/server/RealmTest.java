@@ -1,22 +1,43 @@
 package io.vertx.wamp.test.server;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
 
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Context;
 import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+import io.vertx.junit5.Checkpoint;
 import io.vertx.junit5.VertxExtension;
+import io.vertx.junit5.VertxTestContext;
+import io.vertx.wamp.MatchPolicy;
+import io.vertx.wamp.MessageTransport;
 import io.vertx.wamp.Realm;
 import io.vertx.wamp.SecurityPolicy;
 import io.vertx.wamp.Uri;
+import io.vertx.wamp.WAMPMessage;
 import io.vertx.wamp.WampSession;
 import io.vertx.wamp.messages.EventMessage;
+import io.vertx.wamp.messages.PublishMessage;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mockito;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
 
 @ExtendWith({VertxExtension.class, MockitoExtension.class})
 class RealmTest {
@@ -43,7 +64,7 @@ class RealmTest {
         Collections.emptyMap(),
         Collections.emptyList(),
         Collections.emptyMap());
-    Mockito.verify(fakeSession, Mockito.never()).sendMessage(any());
+    Mockito.verify(fakeSession, Mockito.never()).sendMessage(any(), any());
   }
 
   @Test
@@ -51,7 +72,6 @@ class RealmTest {
   void testPublishMessageSecurityPolicyPermit() {
     SecurityPolicy.ClientInfo clientInfo = TestUtils.buildMockClientInfo();
     Mockito.when(fakeSession.getClientInfo()).thenReturn(clientInfo);
-    Mockito.when(fakeSession.sendMessage(any())).thenReturn(Future.succeededFuture());
     Mockito.when(clientInfo.getPolicy().authorizeEvent(eq(clientInfo), any(), any()))
         .thenReturn(true);
     classUnderTest.addSubscription(fakeSession, new Uri("test.topic"));
@@ -59,18 +79,258 @@ class RealmTest {
         Collections.emptyMap(),
         Collections.emptyList(),
         Collections.emptyMap());
-    Mockito.verify(fakeSession).sendMessage(any(EventMessage.class));
+    Mockito.verify(fakeSession).sendMessage(any(EventMessage.class), any());
   }
 
   @Test
   @DisplayName("It permits event publication for subscriptions which have no security policy")
   void testPublishMessageNoSecurityPolicy() {
-    Mockito.when(fakeSession.sendMessage(any())).thenReturn(Future.succeededFuture());
     classUnderTest.addSubscription(fakeSession, new Uri("test.topic"));
     classUnderTest.publishMessage(new Uri("test.topic"),
         Collections.emptyMap(),
         Collections.emptyList(),
         Collections.emptyMap());
-    Mockito.verify(fakeSession).sendMessage(any(EventMessage.class));
+    Mockito.verify(fakeSession).sendMessage(any(EventMessage.class), any());
+  }
+
+  @Test
+  @DisplayName("It only delivers events to subscriptions of the published topic")
+  void testPublishMessageOnlyToTopicSubscribers() {
+    WampSession otherSession = Mockito.mock(WampSession.class);
+    classUnderTest.addSubscription(fakeSession, new Uri("test.topic"));
+    classUnderTest.addSubscription(otherSession, new Uri("test.other_topic"));
+    classUnderTest.publishMessage(new Uri("test.topic"),
+        Collections.emptyMap(),
+        Collections.emptyList(),
+        Collections.emptyMap());
+    Mockito.verify(fakeSession).sendMessage(any(EventMessage.class), any());
+    Mockito.verify(otherSession, Mockito.never()).sendMessage(any(), any());
+  }
+
+  @Test
+  @DisplayName("It stops delivering events once a subscription has been removed")
+  void testPublishMessageAfterUnsubscribe() {
+    long subscriptionId = classUnderTest.addSubscription(fakeSession, new Uri("test.topic"));
+    assertTrue(classUnderTest.removeSubscription(fakeSession, subscriptionId));
+    assertFalse(classUnderTest.removeSubscription(fakeSession, subscriptionId));
+    classUnderTest.publishMessage(new Uri("test.topic"),
+        Collections.emptyMap(),
+        Collections.emptyList(),
+        Collections.emptyMap());
+    Mockito.verify(fakeSession, Mockito.never()).sendMessage(any(), any());
+  }
+
+  @Test
+  @DisplayName("It delivers events to prefix subscriptions of the topic")
+  void testPublishMessagePrefixSubscription() {
+    WampSession otherSession = Mockito.mock(WampSession.class);
+    classUnderTest.addSubscription(fakeSession, new Uri("com.acme.metrics"), MatchPolicy.PREFIX);
+    classUnderTest.addSubscription(otherSession, new Uri("com.acme.metricsx"), MatchPolicy.PREFIX);
+    classUnderTest.publishMessage(new Uri("com.acme.metrics.cpu.load"),
+        Collections.emptyMap(),
+        Collections.emptyList(),
+        Collections.emptyMap());
+    ArgumentCaptor<EventMessage> captor = ArgumentCaptor.forClass(EventMessage.class);
+    Mockito.verify(fakeSession).sendMessage(captor.capture(), any());
+    assertEquals("com.acme.metrics.cpu.load", captor.getValue().getDetails().get("topic"));
+    Mockito.verify(otherSession, Mockito.never()).sendMessage(any(), any());
+  }
+
+  @Test
+  @DisplayName("It delivers events to wildcard subscriptions matching the topic")
+  void testPublishMessageWildcardSubscription() {
+    WampSession otherSession = Mockito.mock(WampSession.class);
+    classUnderTest.addSubscription(fakeSession, Uri.pattern("com..temperature"),
+        MatchPolicy.WILDCARD);
+    classUnderTest.addSubscription(otherSession, Uri.pattern("com..humidity"),
+        MatchPolicy.WILDCARD);
+    classUnderTest.addSubscription(otherSession, Uri.pattern("com.sensor."),
+        MatchPolicy.WILDCARD);
+    classUnderTest.publishMessage(new Uri("com.kitchen.temperature"),
+        Collections.emptyMap(),
+        Collections.emptyList(),
+        Collections.emptyMap());
+    ArgumentCaptor<EventMessage> captor = ArgumentCaptor.forClass(EventMessage.class);
+    Mockito.verify(fakeSession).sendMessage(captor.capture(), any());
+    assertEquals("com.kitchen.temperature", captor.getValue().getDetails().get("topic"));
+    Mockito.verify(otherSession, Mockito.never()).sendMessage(any(), any());
+  }
+
+  @Test
+  @DisplayName("It does not deliver events to their publisher unless asked to")
+  void testPublishMessageExcludeMe() {
+    classUnderTest.addSubscription(fakeSession, new Uri("test.topic"));
+    classUnderTest.publishMessage(fakeSession, new PublishMessage(1L, Collections.emptyMap(),
+        new Uri("test.topic"), Collections.emptyList(), Collections.emptyMap()));
+    Mockito.verify(fakeSession, Mockito.never()).sendMessage(any(), any());
+    classUnderTest.publishMessage(fakeSession, new PublishMessage(2L, Map.of("exclude_me", false),
+        new Uri("test.topic"), Collections.emptyList(), Collections.emptyMap()));
+    Mockito.verify(fakeSession).sendMessage(any(EventMessage.class), any());
+  }
+
+  @Test
+  @DisplayName("It only delivers events to eligible and not excluded sessions")
+  void testPublishMessageEligibleAndExclude() throws Exception {
+    List<MessageTransport> transports = new ArrayList<>();
+    List<Long> sessionIds = new ArrayList<>();
+    for (int i = 0; i < 3; i++) {
+      MessageTransport transport = Mockito.mock(MessageTransport.class);
+      WampSession session = WampSession.establish(transport, null, List::of);
+      classUnderTest.addSubscription(session, new Uri("test.topic"));
+      transports.add(transport);
+      sessionIds.add((Long) ReflectionTestUtils.getField(session, "sessionId"));
+    }
+    classUnderTest.publishMessage(new Uri("test.topic"),
+        Map.of("eligible", List.of(sessionIds.get(0), sessionIds.get(1)),
+            "exclude", List.of(sessionIds.get(1))),
+        Collections.emptyList(),
+        Collections.emptyMap());
+    ArgumentCaptor<EventMessage> captor = ArgumentCaptor.forClass(EventMessage.class);
+    Mockito.verify(transports.get(0)).sendMessage(captor.capture());
+    assertFalse(captor.getValue().getDetails().containsKey("eligible"));
+    Mockito.verify(transports.get(1), Mockito.never()).sendMessage(any());
+    Mockito.verify(transports.get(2), Mockito.never()).sendMessage(any());
+  }
+
+  @Test
+  @DisplayName("It filters events by the authentication role of the subscribers")
+  void testPublishMessageEligibleAuthRole() {
+    WampSession otherSession = Mockito.mock(WampSession.class);
+    SecurityPolicy.ClientInfo clientInfo = TestUtils.buildMockClientInfo();
+    SecurityPolicy.ClientInfo otherClientInfo = Mockito.mock(SecurityPolicy.ClientInfo.class);
+    Mockito.when(fakeSession.getClientInfo()).thenReturn(clientInfo);
+    Mockito.when(otherSession.getClientInfo()).thenReturn(otherClientInfo);
+    Mockito.when(clientInfo.getAuthRole()).thenReturn("admin");
+    Mockito.when(otherClientInfo.getAuthRole()).thenReturn("guest");
+    Mockito.when(clientInfo.getPolicy().authorizeEvent(eq(clientInfo), any(), any()))
+        .thenReturn(true);
+    classUnderTest.addSubscription(fakeSession, new Uri("test.topic"));
+    classUnderTest.addSubscription(otherSession, new Uri("test.topic"));
+    classUnderTest.publishMessage(new Uri("test.topic"),
+        Map.of("eligible_authrole", List.of("admin")),
+        Collections.emptyList(),
+        Collections.emptyMap());
+    Mockito.verify(fakeSession).sendMessage(any(EventMessage.class), any());
+    Mockito.verify(otherSession, Mockito.never()).sendMessage(any(), any());
+  }
+
+  @Test
+  @DisplayName("It rejects publications with malformed filter options")
+  void testPublishMessageMalformedFilter() {
+    classUnderTest.addSubscription(fakeSession, new Uri("test.topic"));
+    assertTrue(classUnderTest.publishMessage(new Uri("test.topic"),
+        Map.of("exclude", "everyone"),
+        Collections.emptyList(),
+        Collections.emptyMap()).failed());
+    Mockito.verify(fakeSession, Mockito.never()).sendMessage(any(), any());
+  }
+
+  @Test
+  @DisplayName("It allows a procedure to be registered once and unregistered by its owner only")
+  void testRegistrationLifecycle() {
+    WampSession otherSession = Mockito.mock(WampSession.class);
+    long registrationId = classUnderTest.addRegistration(fakeSession, new Uri("test.procedure"));
+    assertTrue(registrationId > 0);
+    assertEquals(-1, classUnderTest.addRegistration(otherSession, new Uri("test.procedure")));
+    assertFalse(classUnderTest.removeRegistration(otherSession, registrationId));
+    assertTrue(classUnderTest.removeRegistration(fakeSession, registrationId));
+    assertFalse(classUnderTest.removeRegistration(fakeSession, registrationId));
+    assertTrue(classUnderTest.addRegistration(otherSession, new Uri("test.procedure")) > 0);
+  }
+
+  @Test
+  @DisplayName("It removes only the entries of the sessions being torn down")
+  void testRemoveSessions() {
+    WampSession otherSession = Mockito.mock(WampSession.class);
+    classUnderTest.addSubscription(fakeSession, new Uri("test.topic"));
+    classUnderTest.addSubscription(otherSession, new Uri("test.topic"));
+    classUnderTest.addRegistration(fakeSession, new Uri("test.procedure"));
+    classUnderTest.removeSessions(List.of(fakeSession));
+    classUnderTest.publishMessage(new Uri("test.topic"),
+        Collections.emptyMap(),
+        Collections.emptyList(),
+        Collections.emptyMap());
+    Mockito.verify(fakeSession, Mockito.never()).sendMessage(any(), any());
+    Mockito.verify(otherSession).sendMessage(any(EventMessage.class), any());
+    assertTrue(classUnderTest.addRegistration(otherSession, new Uri("test.procedure")) > 0);
+  }
+
+  @Test
+  @DisplayName("It removes the exact and pattern subscriptions of many sessions in one go")
+  void testRemoveManySessions() {
+    List<WampSession> removed = new ArrayList<>();
+    for (int i = 0; i < 5; i++) {
+      WampSession session = Mockito.mock(WampSession.class);
+      classUnderTest.addSubscription(session, new Uri("test.topic"));
+      classUnderTest.addSubscription(session, new Uri("test"), MatchPolicy.PREFIX);
+      removed.add(session);
+    }
+    classUnderTest.addSubscription(fakeSession, new Uri("test.topic"));
+    classUnderTest.removeSessions(removed);
+    classUnderTest.publishMessage(new Uri("test.topic"),
+        Collections.emptyMap(),
+        Collections.emptyList(),
+        Collections.emptyMap());
+    removed.forEach(session -> Mockito.verify(session, Mockito.never()).sendMessage(any(), any()));
+    Mockito.verify(fakeSession).sendMessage(any(EventMessage.class), any());
+  }
+
+  @Test
+  @DisplayName("It keeps every subscription made concurrently on the same topic")
+  void testConcurrentSubscriptions() throws InterruptedException {
+    List<Thread> threads = new ArrayList<>();
+    for (int i = 0; i < 8; i++) {
+      threads.add(new Thread(() -> {
+        for (int j = 0; j < 100; j++) {
+          classUnderTest.addSubscription(fakeSession, new Uri("test.topic"));
+        }
+      }));
+    }
+    threads.forEach(Thread::start);
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    classUnderTest.publishMessage(new Uri("test.topic"),
+        Collections.emptyMap(),
+        Collections.emptyList(),
+        Collections.emptyMap());
+    Mockito.verify(fakeSession, Mockito.times(800)).sendMessage(any(EventMessage.class), any());
+  }
+
+  @Test
+  @DisplayName("It delivers events on the context of the subscribed session")
+  void testPublishMessageOnSessionContext(Vertx vertx, VertxTestContext testContext) {
+    Context sessionContext = vertx.getOrCreateContext();
+    Checkpoint delivered = testContext.checkpoint();
+    MessageTransport transport = new MessageTransport() {
+      @Override
+      public void sendMessage(WAMPMessage message, Handler<AsyncResult<Void>> completeHandler) {
+        testContext.verify(() -> assertSame(sessionContext, Vertx.currentContext()));
+        if (completeHandler != null) {
+          completeHandler.handle(Future.succeededFuture());
+        }
+        delivered.flag();
+      }
+
+      @Override
+      public void setReceiveHandler(Consumer<WAMPMessage> consumer) {
+      }
+
+      @Override
+      public void setErrorHandler(Consumer<Uri> consumer) {
+      }
+
+      @Override
+      public void close(Promise<Void> promise) {
+      }
+    };
+    sessionContext.runOnContext(v -> {
+      WampSession session = WampSession.establish(transport, null, List::of);
+      classUnderTest.addSubscription(session, new Uri("test.topic"));
+      new Thread(() -> classUnderTest.publishMessage(new Uri("test.topic"),
+          Collections.emptyMap(),
+          Collections.emptyList(),
+          Collections.emptyMap())).start();
+    });
   }
 }
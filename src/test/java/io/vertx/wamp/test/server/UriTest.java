@@ -1,6 +1,8 @@
 package io.vertx.wamp.test.server;
 
 import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 
 import io.vertx.wamp.Uri;
@@ -24,4 +26,38 @@ class UriTest {
       new Uri("foo bar");
     });
   }
+
+  @Test
+  @DisplayName("It only accepts empty URI components in patterns")
+  void testPatternWithEmptyComponents() {
+    assertDoesNotThrow(() -> {
+      Uri.pattern("com..temperature");
+    });
+    assertThrows(Uri.InvalidUriException.class, () -> {
+      new Uri("com..temperature");
+    });
+  }
+
+  @Test
+  @DisplayName("It rejects malformed URIs")
+  void testInvalidUris() {
+    for (String invalid : new String[]{"", ".com", "com.", "com.my#app", "com.my\tapp", "a\n"}) {
+      assertThrows(Uri.InvalidUriException.class, () -> new Uri(invalid), invalid);
+    }
+    for (String invalid : new String[]{"com.#", "com .app"}) {
+      assertThrows(Uri.InvalidUriException.class, () -> Uri.pattern(invalid), invalid);
+    }
+    assertDoesNotThrow(() -> Uri.pattern(".temperature"));
+    assertDoesNotThrow(() -> Uri.pattern("com."));
+  }
+
+  @Test
+  @DisplayName("It reuses URI instances for the same string")
+  void testValueOf() {
+    Uri uri = Uri.valueOf(new String("com.myapp.topic1"));
+    assertSame(uri, Uri.valueOf(new String("com.myapp.topic1")));
+    assertEquals(new Uri("com.myapp.topic1"), uri);
+    assertEquals(new Uri("com.myapp.topic1").hashCode(), uri.hashCode());
+    assertThrows(Uri.InvalidUriException.class, () -> Uri.valueOf("com..topic1"));
+  }
 }
@@ -0,0 +1,93 @@
+package io.vertx.wamp.test.server;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.net.NetSocket;
+import io.vertx.junit5.VertxExtension;
+import io.vertx.junit5.VertxTestContext;
+import io.vertx.wamp.Realm;
+import io.vertx.wamp.Uri;
+import io.vertx.wamp.WAMPRawSocketServer;
+import java.nio.charset.StandardCharsets;
+import java.util.function.BiConsumer;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+@ExtendWith(VertxExtension.class)
+class WAMPRawSocketServerTest {
+
+  static final int LISTEN_PORT = 8898;
+  static final String LISTEN_HOST = "127.0.0.1";
+
+  @Test
+  @DisplayName("It negotiates the serializer and welcomes peers joining a realm")
+  void testHandshakeAndHello(Vertx vertx, VertxTestContext testContext) {
+    final Buffer hello = Buffer.buffer("[1,\"test.realm\",{}]");
+    connect(vertx, testContext, Buffer.buffer()
+        .appendUnsignedByte((short) 0x7f).appendUnsignedByte((short) 0x11)
+        .appendUnsignedShort(0)
+        .appendInt(hello.length()).appendBuffer(hello), (socket, received) -> {
+      if (received.length() < 8 || received.length() < 8 + received.getInt(4)) {
+        return;
+      }
+      testContext.verify(() -> {
+        assertEquals(Buffer.buffer(new byte[]{0x7f, (byte) 0xf1, 0, 0}), received.slice(0, 4));
+        final String welcome = received.getString(8, received.length(),
+            StandardCharsets.UTF_8.name());
+        assertTrue(welcome.startsWith("[2,"), welcome);
+      });
+      testContext.completeNow();
+    });
+  }
+
+  @Test
+  @DisplayName("It answers pings with the same payload")
+  void testPing(Vertx vertx, VertxTestContext testContext) {
+    connect(vertx, testContext, Buffer.buffer()
+        .appendUnsignedByte((short) 0x7f).appendUnsignedByte((short) 0x02)
+        .appendUnsignedShort(0)
+        .appendInt(1 << 24 | 3).appendString("abc"), (socket, received) -> {
+      if (received.length() < 11) {
+        return;
+      }
+      testContext.verify(() -> {
+        assertEquals(0x02, received.getUnsignedByte(1) & 0x0f);
+        assertEquals(2 << 24 | 3, received.getInt(4));
+        assertEquals("abc", received.getString(8, 11));
+      });
+      testContext.completeNow();
+    });
+  }
+
+  @Test
+  @DisplayName("It rejects unsupported serializers")
+  void testUnsupportedSerializer(Vertx vertx, VertxTestContext testContext) {
+    connect(vertx, testContext, Buffer.buffer(new byte[]{0x7f, 0x1f, 0, 0}),
+        (socket, received) -> {
+          if (received.length() < 4) {
+            return;
+          }
+          testContext.verify(() ->
+              assertEquals(Buffer.buffer(new byte[]{0x7f, 0x10, 0, 0}), received.slice(0, 4)));
+          socket.closeHandler(v -> testContext.completeNow());
+        });
+  }
+
+  private void connect(Vertx vertx, VertxTestContext testContext, Buffer request,
+      BiConsumer<NetSocket, Buffer> check) {
+    WAMPRawSocketServer server = WAMPRawSocketServer.create(vertx)
+        .addRealm(new Realm(new Uri("test.realm")));
+    server.listen(LISTEN_PORT, LISTEN_HOST).onComplete(testContext.succeeding(s ->
+        vertx.createNetClient().connect(LISTEN_PORT, LISTEN_HOST)
+            .onComplete(testContext.succeeding(socket -> {
+              final Buffer received = Buffer.buffer();
+              // called with everything received so far, until the test completes
+              socket.handler(data -> check.accept(socket, received.appendBuffer(data)));
+              socket.write(request);
+            }))));
+  }
+}
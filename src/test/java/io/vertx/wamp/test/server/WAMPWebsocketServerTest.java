@@ -1,14 +1,26 @@
 package io.vertx.wamp.test.server;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertIterableEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 
 import io.vertx.core.Vertx;
 import io.vertx.junit5.VertxExtension;
+import io.vertx.junit5.VertxTestContext;
+import io.vertx.wamp.MessageTransport;
 import io.vertx.wamp.Realm;
 import io.vertx.wamp.Uri;
+import io.vertx.wamp.WAMPMessage;
 import io.vertx.wamp.WAMPWebsocketServer;
+import io.vertx.wamp.messages.EventMessage;
+import io.vertx.wamp.messages.HelloMessage;
+import io.vertx.wamp.messages.SubscribeMessage;
+import io.vertx.wamp.messages.SubscribedMessage;
+import io.vertx.wamp.messages.WelcomeMessage;
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -41,4 +53,33 @@ class WAMPWebsocketServerTest {
 
     assertIterableEquals(List.of(realm1, realm2), returned);
   }
+
+  @Test
+  @DisplayName("It connects local peers without encoding their messages")
+  void testConnectLocal(Vertx vertx, VertxTestContext testContext) throws IOException {
+    WAMPWebsocketServer server = WAMPWebsocketServer.create(vertx);
+    Realm realm = new Realm(new Uri("test.realm"));
+    server.addRealm(realm);
+    MessageTransport peer = server.connectLocal(null);
+    List<WAMPMessage> received = new ArrayList<>();
+    peer.setReceiveHandler(message -> {
+      received.add(message);
+      try {
+        if (message instanceof WelcomeMessage) {
+          peer.sendMessage(new SubscribeMessage(2L, Map.of(), new Uri("test.topic")));
+        } else if (message instanceof SubscribedMessage) {
+          realm.publishMessage(new Uri("test.topic"), Map.of(), List.of("hello"), null);
+        } else if (message instanceof EventMessage) {
+          testContext.verify(() -> {
+            assertEquals(List.of("hello"), ((EventMessage) message).getArguments());
+            assertEquals(3, received.size());
+          });
+          testContext.completeNow();
+        }
+      } catch (IOException e) {
+        testContext.failNow(e);
+      }
+    });
+    peer.sendMessage(new HelloMessage(realm.getUri(), Map.of()));
+  }
 }
@@ -14,6 +14,7 @@ import io.vertx.core.Future;
 import io.vertx.core.Handler;
 import io.vertx.core.Promise;
 import io.vertx.junit5.VertxExtension;
+import io.vertx.wamp.MessageFactory;
 import io.vertx.wamp.MessageTransport;
 import io.vertx.wamp.Realm;
 import io.vertx.wamp.RealmProvider;
@@ -21,11 +22,16 @@ import io.vertx.wamp.SecurityPolicy;
 import io.vertx.wamp.Uri;
 import io.vertx.wamp.WAMPMessage;
 import io.vertx.wamp.WampSession;
+import io.vertx.wamp.impl.JsonMessageDecoder;
 import io.vertx.wamp.messages.AbortMessage;
+import io.vertx.wamp.messages.CallMessage;
 import io.vertx.wamp.messages.ErrorMessage;
+import io.vertx.wamp.messages.EventMessage;
 import io.vertx.wamp.messages.GoodbyeMessage;
 import io.vertx.wamp.messages.HelloMessage;
+import io.vertx.wamp.messages.InvocationMessage;
 import io.vertx.wamp.messages.PublishMessage;
+import io.vertx.wamp.messages.PublishedMessage;
 import io.vertx.wamp.messages.RegisterMessage;
 import io.vertx.wamp.messages.RegisteredMessage;
 import io.vertx.wamp.messages.SubscribeMessage;
@@ -35,8 +41,11 @@ import io.vertx.wamp.messages.UnregisteredMessage;
 import io.vertx.wamp.messages.UnsubscribeMessage;
 import io.vertx.wamp.messages.UnsubscribedMessage;
 import io.vertx.wamp.messages.WelcomeMessage;
+import io.vertx.wamp.messages.YieldMessage;
+import java.io.IOException;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.function.Consumer;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
@@ -174,6 +183,16 @@ public class WampSessionTest {
       Mockito.verify(transport).close();
     }
 
+    @Test
+    @DisplayName("It does not accept messages only a router sends")
+    void testRejectRouterMessage() {
+      transport.receiveHandler.accept(new SubscribedMessage(1L, 2L));
+      ArgumentCaptor<AbortMessage> captor = ArgumentCaptor.forClass(AbortMessage.class);
+      Mockito.verify(transport).sendMessage(captor.capture(), any());
+      assertEquals(Uri.PROTOCOL_VIOLATION, captor.getValue().getReason());
+      Mockito.verify(transport).close();
+    }
+
     @Test
     @DisplayName("It terminates connections on GOODBYE")
     void testHandleGoodbye() {
@@ -196,6 +215,97 @@ public class WampSessionTest {
       assertTrue(captor.getValue().getSubscription() > 0);
     }
 
+    @Test
+    @DisplayName("It handles prefix SUBSCRIBE requests ending with a dot")
+    void testSubscribePrefixWithTrailingDot() throws IOException {
+      transport.receiveHandler.accept(MessageFactory.parseMessage(
+          "[32,5432,{\"match\":\"prefix\"},\"com.acme.metrics.\"]",
+          new JsonMessageDecoder()));
+      ArgumentCaptor<SubscribedMessage> captor = ArgumentCaptor.forClass(SubscribedMessage.class);
+      Mockito.verify(transport).sendMessage(captor.capture(), any());
+      assertEquals(5432, captor.getValue().getId());
+      Mockito.clearInvocations(transport);
+
+      testRealm.publishMessage(new Uri("com.acme.metrics"), Map.of(), List.of(), Map.of());
+      Mockito.verify(transport, Mockito.never()).sendMessage(any(), any());
+      testRealm.publishMessage(new Uri("com.acme.metrics.cpu"), Map.of(), List.of(), Map.of());
+      Mockito.verify(transport).sendMessage(any(EventMessage.class), any());
+    }
+
+    @Test
+    @DisplayName("It rejects SUBSCRIBE requests with unknown match policy")
+    void testSubscribeUnknownMatchPolicy() {
+      transport.receiveHandler.accept(new SubscribeMessage(5432L, Map.of("match", "fuzzy"),
+          new Uri("my.topic")));
+      ArgumentCaptor<ErrorMessage> captor = ArgumentCaptor.forClass(ErrorMessage.class);
+      Mockito.verify(transport).sendMessage(captor.capture(), any());
+      assertEquals(Uri.INVALID_ARGUMENT, captor.getValue().getError());
+    }
+
+    @Test
+    @DisplayName("It acknowledges PUBLISH requests when asked to")
+    void testPublishAcknowledged() {
+      transport.receiveHandler.accept(new PublishMessage(5432L, Map.of("acknowledge", true),
+          new Uri("my.topic"), Collections.emptyList(), Collections.emptyMap()));
+      ArgumentCaptor<PublishedMessage> captor = ArgumentCaptor.forClass(PublishedMessage.class);
+      Mockito.verify(transport).sendMessage(captor.capture(), any());
+      assertEquals(5432, captor.getValue().getId());
+    }
+
+    @Test
+    @DisplayName("It does not acknowledge PUBLISH requests by default")
+    void testPublishUnacknowledged() {
+      transport.receiveHandler.accept(new PublishMessage(5432L, Collections.emptyMap(),
+          new Uri("my.topic"), Collections.emptyList(), Collections.emptyMap()));
+      Mockito.verify(transport, Mockito.never()).sendMessage(any(), any());
+    }
+
+    @Test
+    @DisplayName("It stops reading while the limit of pending CALLs is reached")
+    void testPendingCallLimit() {
+      ReflectionTestUtils.setField(session, "maxPendingCalls", 1);
+      testRealm.addRegistration(session, new Uri("my.procedure"));
+      transport.receiveHandler.accept(new CallMessage(5432L, Collections.emptyMap(),
+          new Uri("my.procedure"), List.of(), Map.of()));
+      ArgumentCaptor<InvocationMessage> captor = ArgumentCaptor.forClass(InvocationMessage.class);
+      Mockito.verify(transport).sendMessage(captor.capture(), any());
+      Mockito.verify(transport).pause();
+      Mockito.verify(transport, Mockito.never()).resume();
+
+      transport.receiveHandler.accept(new YieldMessage(captor.getValue().getId(),
+          Collections.emptyMap(), List.of(), Map.of()));
+      Mockito.verify(transport).resume();
+    }
+
+    @Test
+    @DisplayName("It keeps reading while PUBLISH fan-outs complete within the limit")
+    void testPendingPublicationLimit() {
+      ReflectionTestUtils.setField(session, "maxPendingPublications", 1);
+      transport.receiveHandler.accept(new PublishMessage(5432L, Collections.emptyMap(),
+          new Uri("my.topic"), Collections.emptyList(), Collections.emptyMap()));
+      // without subscribers on other event loops, the fan-out is done right away
+      Mockito.verify(transport, Mockito.never()).pause();
+    }
+
+    @Test
+    @DisplayName("It does not answer invalid PUBLISH requests unless asked to acknowledge")
+    void testInvalidPublishUnacknowledged() {
+      transport.receiveHandler.accept(new PublishMessage(5432L, Map.of("exclude", "nobody"),
+          new Uri("my.topic"), Collections.emptyList(), Collections.emptyMap()));
+      Mockito.verify(transport, Mockito.never()).sendMessage(any(), any());
+    }
+
+    @Test
+    @DisplayName("It answers invalid PUBLISH requests with ERROR when asked to acknowledge")
+    void testInvalidPublishAcknowledged() {
+      transport.receiveHandler.accept(new PublishMessage(5432L,
+          Map.of("acknowledge", true, "exclude", "nobody"),
+          new Uri("my.topic"), Collections.emptyList(), Collections.emptyMap()));
+      ArgumentCaptor<ErrorMessage> captor = ArgumentCaptor.forClass(ErrorMessage.class);
+      Mockito.verify(transport).sendMessage(captor.capture(), any());
+      assertEquals(Uri.INVALID_ARGUMENT, captor.getValue().getError());
+    }
+
     @Test
     @DisplayName("It handles known UNSUBSCRIBE requests")
     void testUnsubscribe() {
@@ -329,7 +439,7 @@ public class WampSessionTest {
             topic,
             Collections.emptyList(), Collections.emptyMap());
         transport.receiveHandler.accept(message);
-        Mockito.verify(spiedRealm).publishMessage(message);
+        Mockito.verify(spiedRealm).publishMessage(session, message);
       }
     }
   }
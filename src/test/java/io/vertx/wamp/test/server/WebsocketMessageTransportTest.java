@@ -0,0 +1,339 @@
+package io.vertx.wamp.test.server;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import io.netty.buffer.UnpooledByteBufAllocator;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelPromise;
+import io.netty.channel.DefaultChannelPromise;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.http.websocketx.TextWebSocketFrame;
+import io.netty.util.concurrent.EventExecutor;
+import io.netty.util.concurrent.ImmediateEventExecutor;
+import io.vertx.core.Context;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.http.ServerWebSocket;
+import io.vertx.core.http.impl.WebSocketInternal;
+import io.vertx.junit5.VertxExtension;
+import io.vertx.junit5.VertxTestContext;
+import io.vertx.wamp.MessageFactory;
+import io.vertx.wamp.SlowConsumerPolicy;
+import io.vertx.wamp.Uri;
+import io.vertx.wamp.WAMPMessage;
+import io.vertx.wamp.impl.MsgPackMessageDecoder;
+import io.vertx.wamp.impl.Serializer;
+import io.vertx.wamp.impl.WebsocketMessageTransport;
+import io.vertx.wamp.messages.UnsubscribeMessage;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+import org.msgpack.core.MessageBufferPacker;
+import org.msgpack.core.MessagePack;
+
+@ExtendWith(VertxExtension.class)
+class WebsocketMessageTransportTest {
+
+  @Test
+  @DisplayName("It splits batched JSON frames into messages")
+  void testReceiveBatchedJson() {
+    ServerWebSocket websocket = Mockito.mock(ServerWebSocket.class);
+    WebsocketMessageTransport transport = new WebsocketMessageTransport(websocket,
+        Serializer.JSON_BATCHED);
+    List<WAMPMessage> received = new ArrayList<>();
+    List<Uri> errors = new ArrayList<>();
+    transport.setReceiveHandler(received::add);
+    transport.setErrorHandler(errors::add);
+
+    textHandler(websocket).handle("[34,1,2]\u001e[34,3,4]\u001e");
+
+    assertEquals(2, received.size());
+    assertEquals(3L, ((UnsubscribeMessage) received.get(1)).getId());
+    assertTrue(errors.isEmpty());
+
+    textHandler(websocket).handle("[34,1,2]");
+    assertEquals(List.of(Uri.PROTOCOL_VIOLATION), errors);
+  }
+
+  @Test
+  @DisplayName("It splits batched MsgPack frames into messages")
+  void testReceiveBatchedMsgPack() throws IOException {
+    ServerWebSocket websocket = Mockito.mock(ServerWebSocket.class);
+    WebsocketMessageTransport transport = new WebsocketMessageTransport(websocket,
+        Serializer.MSGPACK_BATCHED);
+    List<WAMPMessage> received = new ArrayList<>();
+    List<Uri> errors = new ArrayList<>();
+    transport.setReceiveHandler(received::add);
+    transport.setErrorHandler(errors::add);
+    Buffer message = pack(34, 1, 2);
+    Buffer frame = Buffer.buffer()
+        .appendInt(message.length()).appendBuffer(message)
+        .appendInt(message.length()).appendBuffer(message);
+
+    binaryHandler(websocket).handle(frame);
+
+    assertEquals(2, received.size());
+    assertTrue(errors.isEmpty());
+
+    binaryHandler(websocket).handle(Buffer.buffer().appendInt(100).appendBuffer(message));
+    assertEquals(List.of(Uri.PROTOCOL_VIOLATION), errors);
+  }
+
+  @Test
+  @DisplayName("It sends the messages of one event loop turn in a single JSON frame")
+  void testSendBatchedJson(Vertx vertx, VertxTestContext testContext) {
+    ServerWebSocket websocket = Mockito.mock(ServerWebSocket.class);
+    vertx.runOnContext(v -> {
+      WebsocketMessageTransport transport = new WebsocketMessageTransport(websocket,
+          Serializer.JSON_BATCHED);
+      try {
+        transport.sendMessage(MessageFactory.createSubscribedMessage(1, 2));
+        transport.sendMessage(MessageFactory.createSubscribedMessage(3, 4));
+      } catch (IOException e) {
+        testContext.failNow(e);
+      }
+      Mockito.verify(websocket, Mockito.never()).writeTextMessage(Mockito.anyString());
+      vertx.runOnContext(v2 -> testContext.verify(() -> {
+        Mockito.verify(websocket).writeTextMessage("[33,1,2]\u001e[33,3,4]\u001e");
+        testContext.completeNow();
+      }));
+    });
+  }
+
+  @Test
+  @DisplayName("It sends a batch right away once it exceeds the size limit")
+  void testSendBatchedMsgPack(Vertx vertx, VertxTestContext testContext) {
+    ServerWebSocket websocket = Mockito.mock(ServerWebSocket.class);
+    vertx.runOnContext(v -> testContext.verify(() -> {
+      WebsocketMessageTransport transport = new WebsocketMessageTransport(websocket,
+          Serializer.MSGPACK_BATCHED, 10, 60000);
+      transport.sendMessage(MessageFactory.createSubscribedMessage(1, 2));
+      Mockito.verify(websocket, Mockito.never()).writeBinaryMessage(Mockito.any());
+      transport.sendMessage(MessageFactory.createSubscribedMessage(3, 4));
+
+      ArgumentCaptor<Buffer> frame = ArgumentCaptor.forClass(Buffer.class);
+      Mockito.verify(websocket).writeBinaryMessage(frame.capture());
+      Buffer message = pack(33, 1, 2);
+      assertEquals(2 * (4 + message.length()), frame.getValue().length());
+      assertEquals(message.length(), frame.getValue().getInt(0));
+      assertEquals(message, frame.getValue().slice(4, 4 + message.length()));
+      assertEquals(List.of(3, 4), new MsgPackMessageDecoder()
+          .parseMessage(frame.getValue().slice(8 + message.length(), frame.getValue().length()))
+          .getValue());
+      testContext.completeNow();
+    }));
+  }
+
+  @Test
+  @DisplayName("It drops the newest events of a full queue and sends the rest once drained")
+  void testDropNewestEvents() throws IOException {
+    ServerWebSocket websocket = Mockito.mock(ServerWebSocket.class);
+    LongAdder droppedEvents = new LongAdder();
+    WebsocketMessageTransport transport = new WebsocketMessageTransport(websocket,
+        Serializer.JSON, 1024, 0, 2, SlowConsumerPolicy.DROP_NEWEST, droppedEvents);
+    Mockito.when(websocket.writeQueueFull()).thenReturn(true);
+
+    transport.sendMessage(event(1, 1));
+    transport.sendMessage(MessageFactory.createSubscribedMessage(1, 2));
+    transport.sendMessage(event(1, 2));
+    transport.sendMessage(MessageFactory.createSubscribedMessage(3, 4));
+
+    Mockito.verify(websocket, Mockito.never()).writeTextMessage(Mockito.anyString());
+    assertEquals(1, droppedEvents.sum());
+
+    Mockito.when(websocket.writeQueueFull()).thenReturn(false);
+    drainHandler(websocket).handle(null);
+
+    ArgumentCaptor<String> frames = ArgumentCaptor.forClass(String.class);
+    Mockito.verify(websocket, Mockito.times(3)).writeTextMessage(frames.capture());
+    assertEquals(List.of("[36,1,1,{}]", "[33,1,2]", "[33,3,4]"), frames.getAllValues());
+  }
+
+  @Test
+  @DisplayName("It keeps only the latest queued event of each subscription when conflating")
+  void testConflateEvents() throws IOException {
+    ServerWebSocket websocket = Mockito.mock(ServerWebSocket.class);
+    LongAdder droppedEvents = new LongAdder();
+    WebsocketMessageTransport transport = new WebsocketMessageTransport(websocket,
+        Serializer.JSON, 1024, 0, 10, SlowConsumerPolicy.CONFLATE, droppedEvents);
+    Mockito.when(websocket.writeQueueFull()).thenReturn(true);
+
+    transport.sendMessage(event(1, 1));
+    transport.sendMessage(event(2, 2));
+    transport.sendMessage(event(1, 3));
+
+    Mockito.when(websocket.writeQueueFull()).thenReturn(false);
+    drainHandler(websocket).handle(null);
+
+    ArgumentCaptor<String> frames = ArgumentCaptor.forClass(String.class);
+    Mockito.verify(websocket, Mockito.times(2)).writeTextMessage(frames.capture());
+    assertEquals(List.of("[36,1,3,{}]", "[36,2,2,{}]"), frames.getAllValues());
+    assertEquals(1, droppedEvents.sum());
+  }
+
+  @Test
+  @DisplayName("It disconnects a slow consumer with wamp.close.system_shutdown")
+  void testDisconnectSlowConsumer() throws IOException {
+    ServerWebSocket websocket = Mockito.mock(ServerWebSocket.class);
+    LongAdder droppedEvents = new LongAdder();
+    WebsocketMessageTransport transport = new WebsocketMessageTransport(websocket,
+        Serializer.JSON, 1024, 0, 1, SlowConsumerPolicy.DISCONNECT, droppedEvents);
+    List<Uri> errors = new ArrayList<>();
+    transport.setErrorHandler(errors::add);
+    Mockito.when(websocket.writeQueueFull()).thenReturn(true);
+
+    transport.sendMessage(event(1, 1));
+    transport.sendMessage(event(1, 2));
+
+    assertEquals(List.of(Uri.SYSTEM_SHUTDOWN), errors);
+    // the queued event is dropped along with the one overflowing the queue
+    assertEquals(2, droppedEvents.sum());
+    Mockito.verify(websocket).close();
+  }
+
+  @Test
+  @DisplayName("It flushes the frames written during one event loop turn at once")
+  void testCoalesceFlushes() throws IOException {
+    EventExecutor executor = Mockito.mock(EventExecutor.class);
+    Mockito.when(executor.inEventLoop()).thenReturn(true);
+    ChannelHandlerContext chctx = Mockito.mock(ChannelHandlerContext.class);
+    Mockito.when(chctx.executor()).thenReturn(executor);
+    Mockito.when(chctx.alloc()).thenReturn(UnpooledByteBufAllocator.DEFAULT);
+    ServerWebSocket websocket = Mockito.mock(ServerWebSocket.class,
+        Mockito.withSettings().extraInterfaces(WebSocketInternal.class));
+    Mockito.when(((WebSocketInternal) websocket).channelHandlerContext()).thenReturn(chctx);
+    WebsocketMessageTransport transport = new WebsocketMessageTransport(websocket,
+        Serializer.JSON);
+
+    transport.sendMessage(event(1, 1));
+    transport.sendMessage(event(1, 2));
+    transport.sendMessage(MessageFactory.createSubscribedMessage(1, 2));
+
+    ArgumentCaptor<TextWebSocketFrame> frames = ArgumentCaptor.forClass(TextWebSocketFrame.class);
+    Mockito.verify(chctx, Mockito.times(3)).write(frames.capture());
+    Mockito.verify(chctx, Mockito.never()).flush();
+    assertEquals(List.of("[36,1,1,{}]", "[36,1,2,{}]", "[33,1,2]"), frames.getAllValues()
+        .stream().map(TextWebSocketFrame::text).collect(Collectors.toList()));
+    frames.getAllValues().forEach(TextWebSocketFrame::release);
+
+    ArgumentCaptor<Runnable> flush = ArgumentCaptor.forClass(Runnable.class);
+    Mockito.verify(executor).execute(flush.capture());
+    flush.getValue().run();
+    Mockito.verify(chctx).flush();
+
+    // the next turn gets a flush of its own
+    transport.sendMessage(event(1, 3));
+    Mockito.verify(executor, Mockito.times(2)).execute(Mockito.any());
+  }
+
+  @Test
+  @DisplayName("It calls completion handlers of pooled writes on the websocket's context")
+  void testCompletionOnContext(Vertx vertx, VertxTestContext testContext) {
+    EventExecutor executor = Mockito.mock(EventExecutor.class);
+    Mockito.when(executor.inEventLoop()).thenReturn(true);
+    ChannelHandlerContext chctx = Mockito.mock(ChannelHandlerContext.class);
+    Mockito.when(chctx.executor()).thenReturn(executor);
+    Mockito.when(chctx.alloc()).thenReturn(UnpooledByteBufAllocator.DEFAULT);
+    ChannelPromise written = new DefaultChannelPromise(new EmbeddedChannel(),
+        ImmediateEventExecutor.INSTANCE);
+    Mockito.when(chctx.write(Mockito.any())).thenAnswer(invocation -> {
+      ((TextWebSocketFrame) invocation.getArgument(0)).release();
+      return written;
+    });
+    ServerWebSocket websocket = Mockito.mock(ServerWebSocket.class,
+        Mockito.withSettings().extraInterfaces(WebSocketInternal.class));
+    Mockito.when(((WebSocketInternal) websocket).channelHandlerContext()).thenReturn(chctx);
+    Context context = vertx.getOrCreateContext();
+    context.runOnContext(v -> testContext.verify(() -> {
+      WebsocketMessageTransport transport = new WebsocketMessageTransport(websocket,
+          Serializer.JSON);
+      transport.sendMessage(event(1, 1), result -> testContext.verify(() -> {
+        assertTrue(result.succeeded());
+        assertSame(context, Vertx.currentContext());
+        testContext.completeNow();
+      }));
+      // netty completes the write on a thread of its own
+      new Thread(written::setSuccess).start();
+    }));
+  }
+
+  @Test
+  @DisplayName("It fails messages whose websocket closed while they waited for the context")
+  void testSendAfterClose(Vertx vertx, VertxTestContext testContext) {
+    ServerWebSocket websocket = Mockito.mock(ServerWebSocket.class);
+    // closed by the time the message gets to the context, like vert.x the mock refuses to tell
+    // about the write queue of a closed websocket
+    Mockito.when(websocket.isClosed()).thenReturn(false, true);
+    Mockito.when(websocket.writeQueueFull()).thenThrow(new IllegalStateException("closed"));
+    vertx.runOnContext(v -> {
+      WebsocketMessageTransport transport = new WebsocketMessageTransport(websocket,
+          Serializer.JSON, 1024, 0, 10, SlowConsumerPolicy.DROP_NEWEST, new LongAdder());
+      // sent from outside the context, so the message has to wait for it
+      new Thread(() -> testContext.verify(() ->
+          transport.sendMessage(event(1, 1), result -> testContext.verify(() -> {
+            assertTrue(result.failed());
+            assertTrue(result.cause() instanceof IOException);
+            testContext.completeNow();
+          })))).start();
+    });
+  }
+
+  @Test
+  @DisplayName("It fails the handlers of batched messages when closed")
+  void testCloseFailsBatch(Vertx vertx, VertxTestContext testContext) {
+    ServerWebSocket websocket = Mockito.mock(ServerWebSocket.class);
+    vertx.runOnContext(v -> testContext.verify(() -> {
+      WebsocketMessageTransport transport = new WebsocketMessageTransport(websocket,
+          Serializer.JSON_BATCHED);
+      List<Boolean> completions = new ArrayList<>();
+      transport.sendMessage(event(1, 1), result -> completions.add(result.succeeded()));
+      Mockito.when(websocket.isClosed()).thenReturn(true);
+      transport.close();
+      assertEquals(List.of(false), completions);
+      Mockito.verify(websocket, Mockito.never()).writeTextMessage(Mockito.anyString());
+      testContext.completeNow();
+    }));
+  }
+
+  private static WAMPMessage event(long subscriptionId, long publicationId) {
+    return MessageFactory.createEvent(subscriptionId, publicationId, Map.of(), null, null);
+  }
+
+  @SuppressWarnings("unchecked")
+  private static Handler<Void> drainHandler(ServerWebSocket websocket) {
+    ArgumentCaptor<Handler<Void>> handler = ArgumentCaptor.forClass(Handler.class);
+    Mockito.verify(websocket).drainHandler(handler.capture());
+    return handler.getValue();
+  }
+
+  @SuppressWarnings("unchecked")
+  private static Handler<String> textHandler(ServerWebSocket websocket) {
+    ArgumentCaptor<Handler<String>> handler = ArgumentCaptor.forClass(Handler.class);
+    Mockito.verify(websocket).textMessageHandler(handler.capture());
+    return handler.getValue();
+  }
+
+  @SuppressWarnings("unchecked")
+  private static Handler<Buffer> binaryHandler(ServerWebSocket websocket) {
+    ArgumentCaptor<Handler<Buffer>> handler = ArgumentCaptor.forClass(Handler.class);
+    Mockito.verify(websocket).binaryMessageHandler(handler.capture());
+    return handler.getValue();
+  }
+
+  private static Buffer pack(int type, long first, long second) throws IOException {
+    MessageBufferPacker packer = MessagePack.newDefaultBufferPacker();
+    packer.packArrayHeader(3).packInt(type).packLong(first).packLong(second);
+    return Buffer.buffer(packer.toByteArray());
+  }
+}
@@ -1,8 +1,22 @@
 package io.vertx.wamp.test.server.events;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.wamp.Uri;
+import io.vertx.wamp.WAMPMessage.Type;
+import io.vertx.wamp.impl.CborMessageDecoder;
+import io.vertx.wamp.impl.CborMessageEncoder;
+import io.vertx.wamp.impl.JsonMessageEncoder;
+import io.vertx.wamp.impl.MsgPackMessageDecoder;
+import io.vertx.wamp.impl.MsgPackMessageEncoder;
 import io.vertx.wamp.messages.EventMessage;
+import io.vertx.wamp.messages.ResultMessage;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 import java.util.Map;
 import org.junit.jupiter.api.Test;
@@ -30,6 +44,70 @@ class EventMessageTest {
     assertEquals(objectUnderTest.getArgumentsKw(), payload.get(4));
   }
 
+  @Test
+  void testSharedPublicationJsonEncoding() {
+    EventMessage.Publication publication = buildEventMessage().getPublication();
+    JsonMessageEncoder encoder = new JsonMessageEncoder();
+    assertEquals("[36,1,345,{\"foo\":\"bar\"},[\"baz\"],{\"zap\":2}]",
+        encoder.encode(new EventMessage(1L, publication)));
+    assertEquals("[36,2,345,{\"foo\":\"bar\"},[\"baz\"],{\"zap\":2}]",
+        encoder.encode(new EventMessage(2L, publication)));
+  }
+
+  @Test
+  void testSharedPublicationMsgPackEncoding() throws IOException {
+    EventMessage.Publication publication = buildEventMessage().getPublication();
+    MsgPackMessageEncoder encoder = new MsgPackMessageEncoder();
+    MsgPackMessageDecoder decoder = new MsgPackMessageDecoder();
+    encoder.encode(new EventMessage(1L, publication));
+    Map.Entry<Type, List<Object>> decoded = decoder
+        .parseMessage(encoder.encode(new EventMessage(2L, publication)));
+    assertEquals(Type.EVENT, decoded.getKey());
+    assertEquals(List.of(2, 345, Map.of("foo", "bar"), List.of("baz"), Map.of("zap", 2)),
+        decoded.getValue());
+  }
+
+  @Test
+  void testSharedPublicationCborEncoding() throws IOException {
+    EventMessage.Publication publication = buildEventMessage().getPublication();
+    CborMessageEncoder encoder = new CborMessageEncoder();
+    CborMessageDecoder decoder = new CborMessageDecoder();
+    encoder.encode(new EventMessage(1L, publication));
+    Map.Entry<Type, List<Object>> decoded = decoder
+        .parseMessage(encoder.encode(new EventMessage(2L, publication)));
+    assertEquals(Type.EVENT, decoded.getKey());
+    assertEquals(List.of(2, 345, Map.of("foo", "bar"), List.of("baz"), Map.of("zap", 2)),
+        decoded.getValue());
+  }
+
+  @Test
+  void testPooledMsgPackEncoding() throws IOException {
+    EventMessage.Publication publication = buildEventMessage().getPublication();
+    MsgPackMessageEncoder encoder = new MsgPackMessageEncoder();
+    MsgPackMessageDecoder decoder = new MsgPackMessageDecoder();
+    ByteBuf encoded = encoder.encode(new EventMessage(3L, publication),
+        PooledByteBufAllocator.DEFAULT);
+    try {
+      Map.Entry<Type, List<Object>> decoded = decoder.parseMessage(Buffer.buffer(encoded));
+      assertEquals(List.of(3, 345, Map.of("foo", "bar"), List.of("baz"), Map.of("zap", 2)),
+          decoded.getValue());
+    } finally {
+      assertTrue(encoded.release());
+    }
+  }
+
+  @Test
+  void testPooledJsonEncoding() throws IOException {
+    ResultMessage message = new ResultMessage(7L, Map.of(), List.of("h\u00e9llo", new Uri("a.b")),
+        null);
+    ByteBuf encoded = new JsonMessageEncoder().encode(message, PooledByteBufAllocator.DEFAULT);
+    try {
+      assertEquals("[50,7,{},[\"h\u00e9llo\",\"a.b\"]]", encoded.toString(StandardCharsets.UTF_8));
+    } finally {
+      assertTrue(encoded.release());
+    }
+  }
+
   private EventMessage buildEventMessage() {
     return new EventMessage(123l,
         345l,
@@ -0,0 +1,230 @@
+package io.vertx.wamp.test.server.events;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import io.netty.buffer.Unpooled;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.wamp.MessageFactory;
+import io.vertx.wamp.Uri;
+import io.vertx.wamp.WAMPProtocolException;
+import io.vertx.wamp.impl.CborMessageDecoder;
+import io.vertx.wamp.impl.CborMessageEncoder;
+import io.vertx.wamp.impl.JsonMessageDecoder;
+import io.vertx.wamp.impl.JsonMessageEncoder;
+import io.vertx.wamp.impl.MsgPackMessageDecoder;
+import io.vertx.wamp.impl.MsgPackMessageEncoder;
+import io.vertx.wamp.messages.EventMessage;
+import io.vertx.wamp.messages.PublishMessage;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import org.junit.jupiter.api.Test;
+import org.msgpack.core.MessageBufferPacker;
+import org.msgpack.core.MessagePack;
+import org.msgpack.core.MessageUnpacker;
+
+class PublishMessageTest {
+
+  @Test
+  void testJsonDecoding() throws IOException {
+    PublishMessage message = (PublishMessage) MessageFactory.parseMessage(
+        "[16,239714735,{\"acknowledge\":true,\"exclude\":[1,9007199254740991]},\"com.myapp.topic1\","
+            + "[\"Hello\",1.5,null,[true]],{\"nested\":{\"list\":[false]}}]",
+        new JsonMessageDecoder());
+    assertEquals(239714735L, message.getId());
+    assertEquals(new Uri("com.myapp.topic1"), message.getTopic());
+    assertEquals(Boolean.TRUE, message.getOptions().get("acknowledge"));
+    assertEquals(List.of(1, 9007199254740991L), message.getOptions().get("exclude"));
+    assertEquals("Hello", message.getArguments().get(0));
+    assertEquals(1.5, message.getArguments().get(1));
+    assertEquals(null, message.getArguments().get(2));
+    assertEquals(List.of(true), message.getArguments().get(3));
+    assertEquals(Map.of("list", List.of(false)), message.getArgumentsKw().get("nested"));
+  }
+
+  @Test
+  void testJsonDecodingWithoutArguments() throws IOException {
+    PublishMessage message = (PublishMessage) MessageFactory.parseMessage(
+        "[16,1,{},\"com.myapp.topic1\"]", new JsonMessageDecoder());
+    assertEquals(null, message.getArguments());
+    assertEquals(null, message.getArgumentsKw());
+  }
+
+  @Test
+  void testJsonDecodingInvalid() {
+    JsonMessageDecoder decoder = new JsonMessageDecoder();
+    assertThrows(WAMPProtocolException.class, () -> decoder.parseMessage("{\"type\":16}"));
+    assertThrows(WAMPProtocolException.class, () -> decoder.parseMessage("[16,1] []"));
+    assertThrows(IOException.class, () -> decoder.parseMessage("[16,1,{"));
+  }
+
+  @Test
+  void testMsgPackDecoding() throws IOException {
+    MessageBufferPacker packer = MessagePack.newDefaultBufferPacker();
+    packer.packArrayHeader(6)
+        .packInt(16)
+        .packLong(239714735L)
+        .packMapHeader(1).packString("exclude").packArrayHeader(2).packInt(1)
+        .packLong(9007199254740991L)
+        .packString("com.myapp.topic1")
+        .packArrayHeader(3).packString("Hello").packDouble(1.5).packNil()
+        .packMapHeader(1).packString("nested").packArrayHeader(1).packBoolean(false);
+    Buffer data = Buffer.buffer(Unpooled.directBuffer().writeBytes(packer.toByteArray()));
+    PublishMessage message = (PublishMessage) MessageFactory.parseMessage(data,
+        new MsgPackMessageDecoder());
+    assertEquals(239714735L, message.getId());
+    assertEquals(new Uri("com.myapp.topic1"), message.getTopic());
+    assertEquals(List.of(1, 9007199254740991L), message.getOptions().get("exclude"));
+    assertEquals(Arrays.asList("Hello", 1.5, null), message.getArguments());
+    assertEquals(Map.of("nested", List.of(false)), message.getArgumentsKw());
+  }
+
+  @Test
+  void testMsgPackDecodingInvalid() throws IOException {
+    MsgPackMessageDecoder decoder = new MsgPackMessageDecoder();
+    MessageBufferPacker packer = MessagePack.newDefaultBufferPacker();
+    packer.packArrayHeader(2).packInt(16).packInt(1).packInt(3);
+    assertThrows(IOException.class,
+        () -> decoder.parseMessage(Buffer.buffer(packer.toByteArray())));
+    assertThrows(IOException.class,
+        () -> decoder.parseMessage(Buffer.buffer(new byte[]{(byte) 0x91})));
+  }
+
+  @Test
+  void testJsonPassThrough() throws IOException {
+    PublishMessage message = (PublishMessage) MessageFactory.parseMessage(
+        "[16,1,{},\"com.myapp.topic1\", [\"Hello\", 1.50] ,{\"a\" : {}}]",
+        new JsonMessageDecoder());
+    EventMessage event = MessageFactory.createEvent(5, publication(message));
+    // the arguments are copied through verbatim, including their formatting
+    assertEquals("[36,5,7,{},[\"Hello\", 1.50] ,{\"a\" : {}}]",
+        new JsonMessageEncoder().encode(event));
+    assertEquals(List.of("Hello", 1.5), event.getArguments());
+    assertEquals(Map.of("a", Map.of()), event.getArgumentsKw());
+  }
+
+  @Test
+  void testMsgPackPassThrough() throws IOException {
+    MessageBufferPacker packer = MessagePack.newDefaultBufferPacker();
+    packer.packArrayHeader(5).packInt(16).packInt(1).packMapHeader(0)
+        .packString("com.myapp.topic1")
+        .packArrayHeader(2).packString("Hello").packDouble(1.5);
+    PublishMessage message = (PublishMessage) MessageFactory.parseMessage(
+        Buffer.buffer(packer.toByteArray()), new MsgPackMessageDecoder());
+    Buffer encoded = new MsgPackMessageEncoder()
+        .encode(MessageFactory.createEvent(5, publication(message)));
+    MessageUnpacker unpacker = MessagePack.newDefaultUnpacker(encoded.getBytes());
+    assertEquals(5, unpacker.unpackArrayHeader());
+    assertEquals(36, unpacker.unpackInt());
+    assertEquals(5, unpacker.unpackInt());
+    assertEquals(7, unpacker.unpackInt());
+    assertEquals(0, unpacker.unpackMapHeader());
+    assertEquals(2, unpacker.unpackArrayHeader());
+    assertEquals("Hello", unpacker.unpackString());
+    assertEquals(1.5, unpacker.unpackDouble());
+    assertEquals(false, unpacker.hasNext());
+  }
+
+  @Test
+  void testTranscoding() throws IOException {
+    PublishMessage message = (PublishMessage) MessageFactory.parseMessage(
+        "[16,1,{},\"com.myapp.topic1\",[],{\"a\":[1]}]", new JsonMessageDecoder());
+    Buffer encoded = new MsgPackMessageEncoder()
+        .encode(MessageFactory.createEvent(5, publication(message)));
+    MessageUnpacker unpacker = MessagePack.newDefaultUnpacker(encoded.getBytes());
+    assertEquals(6, unpacker.unpackArrayHeader());
+    assertEquals(36, unpacker.unpackInt());
+    assertEquals(5, unpacker.unpackInt());
+    assertEquals(7, unpacker.unpackInt());
+    assertEquals(0, unpacker.unpackMapHeader());
+    assertEquals(0, unpacker.unpackArrayHeader());
+    assertEquals(1, unpacker.unpackMapHeader());
+    assertEquals("a", unpacker.unpackString());
+    assertEquals(1, unpacker.unpackArrayHeader());
+    assertEquals(1, unpacker.unpackInt());
+  }
+
+  @Test
+  void testCborDecoding() throws IOException {
+    PublishMessage message = (PublishMessage) MessageFactory.parseMessage(cborPublish(),
+        new CborMessageDecoder());
+    assertEquals(239714735L, message.getId());
+    assertEquals(new Uri("com.myapp.topic1"), message.getTopic());
+    assertEquals(Boolean.TRUE, message.getOptions().get("acknowledge"));
+    assertEquals(Arrays.asList("Hello", 1.5, null, ByteBuffer.wrap(new byte[]{1, 2})),
+        message.getArguments());
+    assertEquals(Map.of("nested", List.of(false)), message.getArgumentsKw());
+  }
+
+  @Test
+  void testCborDecodingInvalid() throws IOException {
+    CborMessageDecoder decoder = new CborMessageDecoder();
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    try (JsonGenerator generator = new CBORFactory().createGenerator(out)) {
+      generator.writeStartArray();
+      generator.writeNumber(16);
+      generator.writeEndArray();
+      generator.writeNumber(1);
+    }
+    assertThrows(WAMPProtocolException.class,
+        () -> decoder.parseMessage(Buffer.buffer(out.toByteArray())));
+    assertThrows(WAMPProtocolException.class,
+        () -> decoder.parseMessage(Buffer.buffer(new byte[]{(byte) 0x83, 0x10})));
+  }
+
+  @Test
+  void testCborPassThrough() throws IOException {
+    Buffer data = cborPublish();
+    PublishMessage message = (PublishMessage) MessageFactory.parseMessage(
+        Buffer.buffer(Unpooled.directBuffer().writeBytes(data.getBytes())),
+        new CborMessageDecoder());
+    Buffer encoded = new CborMessageEncoder()
+        .encode(MessageFactory.createEvent(5, publication(message)));
+    // the arguments are copied through, only the header differs from the original message
+    assertEquals(Buffer.buffer(data.getBytes(data.length() - 24, data.length())),
+        encoded.getBuffer(encoded.length() - 24, encoded.length()));
+    Map.Entry<?, List<Object>> decoded = new CborMessageDecoder().parseMessage(encoded);
+    assertEquals(List.of(5, 7, Map.of()), decoded.getValue().subList(0, 3));
+    assertEquals(Map.of("nested", List.of(false)), message.getArgumentsKw());
+  }
+
+  // PUBLISH with arguments of 17 bytes and keyword arguments of 7 bytes
+  private static Buffer cborPublish() throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    try (JsonGenerator generator = new CBORFactory().createGenerator(out)) {
+      generator.writeStartArray(6);
+      generator.writeNumber(16);
+      generator.writeNumber(239714735L);
+      generator.writeStartObject();
+      generator.writeBooleanField("acknowledge", true);
+      generator.writeEndObject();
+      generator.writeString("com.myapp.topic1");
+      generator.writeStartArray(4);
+      generator.writeString("Hello");
+      generator.writeNumber(1.5);
+      generator.writeNull();
+      generator.writeBinary(new byte[]{1, 2});
+      generator.writeEndArray();
+      generator.writeStartObject(null, 1);
+      generator.writeFieldName("nested");
+      generator.writeStartArray(1);
+      generator.writeBoolean(false);
+      generator.writeEndArray();
+      generator.writeEndObject();
+      generator.writeEndArray();
+    }
+    return Buffer.buffer(out.toByteArray());
+  }
+
+  private static EventMessage.Publication publication(PublishMessage message) {
+    return new EventMessage.Publication(7, Collections.emptyMap(), null, null,
+        message.getRawPayload());
+  }
+}